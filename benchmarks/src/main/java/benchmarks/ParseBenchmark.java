@@ -0,0 +1,100 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Scanning presc.txt-format files of several sizes: a BufferedReader.readLine() baseline,
+// full materialization through MappedRecordReader, and building the PrescriptionRepository index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+    private static final String PREFIX = "Prescription ID: ";
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws Exception {
+        file = Files.createTempFile("presc-parse-bench", ".txt");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int id = 1; id <= records; id++) {
+                out.write("Prescription ID: " + id + "\n"
+                        + "First Name: Alice\n"
+                        + "Last Name: Johnson\n"
+                        + "Address: 123 Main Street, Springfield, IL 62704, USA\n"
+                        + "Sphere: -5.0\n"
+                        + "Cylinder: -1.0\n"
+                        + "Axis: 90.0\n"
+                        + "Examination Date: 23/10/24\n"
+                        + "Optometrist: Dr. Robert Smith\n\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    // Line-by-line reading with substring parsing of every ID
+    @Benchmark
+    public long readLineIds() throws Exception {
+        long sum = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PREFIX)) {
+                    sum += Integer.parseInt(line.substring(PREFIX.length()).trim());
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Every record materialized as a Prescription
+    @Benchmark
+    public long mappedPrescriptions() throws Throwable {
+        Object reader = (Object) Project.OPEN_MAPPED_READER.invokeExact((Object) file);
+        try (Stream<?> prescriptions = (Stream<?>) (Object) Project.MAPPED_PRESCRIPTIONS.invokeExact(reader)) {
+            return prescriptions.count();
+        } finally {
+            Project.CLOSE_MAPPED_READER.invokeExact(reader);
+        }
+    }
+
+    // ID -> offset index build, which only decodes the ID field of each record
+    @Benchmark
+    public int repositoryIndex() throws Throwable {
+        Object repository = (Object) Project.OPEN_REPOSITORY.invokeExact((Object) file);
+        try {
+            return (int) Project.REPOSITORY_SIZE.invokeExact(repository);
+        } finally {
+            Project.CLOSE_REPOSITORY.invokeExact(repository);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// The addPrescription() hot path, split into validation only and validation + serialize + append.
+// Console output is left out: it is not part of the work a service embedding Prescription pays for.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrescriptionBenchmark {
+    private Object prescription;
+    private Path file;
+    private Object appender;
+
+    @Setup
+    public void setUp() throws Throwable {
+        prescription = Project.validPrescription(1);
+        file = Files.createTempFile("presc-bench", ".txt");
+        appender = (Object) Project.APPENDER_FOR_PATH.invokeExact((Object) file);
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        Project.CLOSE_APPENDER.invokeExact(appender);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".checkpoint"));
+    }
+
+    // Shared validator, bitmask result
+    @Benchmark
+    public int validateBitmask() throws Throwable {
+        return (int) Project.VALIDATE.invokeExact(Project.DEFAULT_VALIDATOR, prescription);
+    }
+
+    // Validation as addPrescription() runs it, returning the error list
+    @Benchmark
+    public Object validateMessages() throws Throwable {
+        return (Object) Project.VALIDATE_PRESCRIPTION.invokeExact(prescription);
+    }
+
+    // Validation, record serialization and the checksummed, atomic append to disk, as addPrescription() does it
+    @Benchmark
+    public void validateAndWrite() throws Throwable {
+        Object errors = (Object) Project.VALIDATE_PRESCRIPTION.invokeExact(prescription);
+        Object record = (Object) Project.FORMAT_PRESCRIPTION.invokeExact(prescription);
+        Project.APPEND_RECORDS.invokeExact(appender, record);
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+// JMH refuses benchmark classes in the default package, and Java code in a named package cannot
+// refer to the application classes in ../src, which all live in the default package. The
+// benchmarks therefore reach them through these method handles. They are static final, so the
+// JIT treats them as constants and inlines the calls just like direct invocations.
+//
+// Every handle is erased: receivers and reference arguments are Object, and primitive return
+// types are kept, so call sites use invokeExact with Object-typed arguments.
+final class Project {
+    static final Class<?> PRESCRIPTION = load("Prescription");
+    static final Class<?> VALIDATOR = load("PrescriptionValidator");
+    static final Class<?> APPENDER = load("RecordAppender");
+    static final Class<?> SCANNER = load("RemarkTextScanner");
+    static final Class<?> MAPPED_READER = load("MappedRecordReader");
+    static final Class<?> REPOSITORY = load("PrescriptionRepository");
+
+    static final MethodHandle NEW_PRESCRIPTION = constructor(PRESCRIPTION);
+    static final MethodHandle SET_PRESC_ID = virtual(PRESCRIPTION, "setPrescID", void.class, int.class);
+    static final MethodHandle SET_FIRST_NAME = virtual(PRESCRIPTION, "setFirstName", void.class, String.class);
+    static final MethodHandle SET_LAST_NAME = virtual(PRESCRIPTION, "setLastName", void.class, String.class);
+    static final MethodHandle SET_ADDRESS = virtual(PRESCRIPTION, "setAddress", void.class, String.class);
+    static final MethodHandle SET_SPHERE = virtual(PRESCRIPTION, "setSphere", void.class, float.class);
+    static final MethodHandle SET_CYLINDER = virtual(PRESCRIPTION, "setCylinder", void.class, float.class);
+    static final MethodHandle SET_AXIS = virtual(PRESCRIPTION, "setAxis", void.class, float.class);
+    static final MethodHandle SET_EXAMINATION_DATE = virtual(PRESCRIPTION, "setExaminationDate", void.class, Date.class);
+    static final MethodHandle SET_OPTOMETRIST = virtual(PRESCRIPTION, "setOptometrist", void.class, String.class);
+    static final MethodHandle VALIDATE_PRESCRIPTION = virtual(PRESCRIPTION, "validatePrescription", List.class);
+    static final MethodHandle FORMAT_PRESCRIPTION = virtual(PRESCRIPTION, "formatPrescription", String.class);
+
+    static final Object DEFAULT_VALIDATOR = staticField(VALIDATOR, "DEFAULT");
+    static final MethodHandle VALIDATE = virtual(VALIDATOR, "validate", int.class, PRESCRIPTION);
+
+    static final MethodHandle APPENDER_FOR_PATH = staticMethod(APPENDER, "forPath", APPENDER, Path.class);
+    // The framed append production writes use: checksum trailer per record plus checkpointing
+    static final MethodHandle APPEND_RECORDS = virtual(APPENDER, "appendRecords", void.class, String.class);
+    static final MethodHandle CLOSE_APPENDER = virtual(APPENDER, "close", void.class);
+
+    static final MethodHandle SCAN_REMARK = staticMethod(SCANNER, "scan", long.class, CharSequence.class);
+    static final MethodHandle WORD_COUNT = staticMethod(SCANNER, "wordCount", int.class, long.class);
+    static final MethodHandle STARTS_WITH_CAPITAL = staticMethod(SCANNER, "startsWithCapital", boolean.class, long.class);
+
+    static final MethodHandle OPEN_MAPPED_READER = staticMethod(MAPPED_READER, "open", MAPPED_READER, Path.class);
+    static final MethodHandle MAPPED_PRESCRIPTIONS = virtual(MAPPED_READER, "prescriptions", Stream.class);
+    static final MethodHandle CLOSE_MAPPED_READER = virtual(MAPPED_READER, "close", void.class);
+
+    static final MethodHandle OPEN_REPOSITORY = staticMethod(REPOSITORY, "open", REPOSITORY, Path.class);
+    static final MethodHandle REPOSITORY_SIZE = virtual(REPOSITORY, "size", int.class);
+    static final MethodHandle CLOSE_REPOSITORY = virtual(REPOSITORY, "close", void.class);
+
+    private Project() {
+    }
+
+    // A prescription that passes every validation rule
+    static Object validPrescription(int id) throws Throwable {
+        Object prescription = (Object) NEW_PRESCRIPTION.invokeExact();
+        SET_PRESC_ID.invokeExact(prescription, id);
+        SET_FIRST_NAME.invokeExact(prescription, (Object) "Alice");
+        SET_LAST_NAME.invokeExact(prescription, (Object) "Johnson");
+        SET_ADDRESS.invokeExact(prescription, (Object) "123 Main Street, Springfield, IL 62704, USA");
+        SET_SPHERE.invokeExact(prescription, -5.0f);
+        SET_CYLINDER.invokeExact(prescription, -1.0f);
+        SET_AXIS.invokeExact(prescription, 90.0f);
+        SET_EXAMINATION_DATE.invokeExact(prescription, (Object) new Date());
+        SET_OPTOMETRIST.invokeExact(prescription, (Object) "Dr. Robert Smith");
+        return prescription;
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> owner) throws IllegalAccessException {
+        // Private lookup so package-private methods such as validatePrescription() are reachable
+        return MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+    }
+
+    private static MethodHandle constructor(Class<?> owner) {
+        try {
+            MethodHandle handle = lookup(owner).findConstructor(owner, MethodType.methodType(void.class));
+            return handle.asType(handle.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = lookup(owner).findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(handle.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = lookup(owner).findStatic(owner, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(handle.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static Object staticField(Class<?> owner, String name) {
+        try {
+            return lookup(owner).findStaticGetter(owner, name, owner).invoke();
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
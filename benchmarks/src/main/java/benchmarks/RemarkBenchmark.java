@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Remark word counting: the trim().split("\\s+") approach addRemark() used to take
+// against RemarkTextScanner
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemarkBenchmark {
+    @Param({
+            "This is a valid remark from the client.",
+            "  Patient reports mild discomfort   when reading small print at night  ",
+            "Follow up in six months to recheck the axis after adaptation period ends and update the lenses."
+    })
+    public String remark;
+
+    @Benchmark
+    public int splitRegex() {
+        String[] words = remark.trim().split("\\s+");
+        return Character.isUpperCase(words[0].charAt(0)) ? words.length : -words.length;
+    }
+
+    @Benchmark
+    public int scanner() throws Throwable {
+        long scan = (long) Project.SCAN_REMARK.invokeExact((Object) remark);
+        int words = (int) Project.WORD_COUNT.invokeExact(scan);
+        return (boolean) Project.STARTS_WITH_CAPITAL.invokeExact(scan) ? words : -words;
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous append log for presc.txt and remark.txt.
+// Callers queue already-validated records; a dedicated thread coalesces them into group
+// commits (one write per file per batch) and completes each record's future once its batch
+// is on disk. A batch is flushed when it reaches maxBatchSize records or when maxDelayMillis
+// has passed since its first record, whichever comes first.
+public class AppendLogWriter implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final boolean force;
+    private final Thread writerThread;
+    private volatile boolean closed; // set under the lock, so no append can slip in after the final drain
+
+    public AppendLogWriter() {
+        this(DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, false);
+    }
+
+    // force: call FileChannel.force() after every group commit so a completed future
+    // means the records survived a power loss, not just a process crash
+    public AppendLogWriter(int maxBatchSize, long maxDelayMillis, boolean force) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Flush delay cannot be negative.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.force = force;
+        this.writerThread = new Thread(this::run, "append-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Queues a pre-formatted record for the given file
+    public CompletableFuture<Boolean> append(String fileName, String record) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (!closed) {
+                queue.add(new Entry(fileName, record, future));
+                return future;
+            }
+        }
+        future.completeExceptionally(new IllegalStateException("Append log writer is closed."));
+        return future;
+    }
+
+    // Stops accepting records, flushes everything already queued and waits for the writer thread
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Entry first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the oldest record has waited long enough
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Never leave a caller waiting on a record that will not be written
+            batch.addAll(queue);
+            queue.clear();
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+        }
+    }
+
+    private void commit(List<Entry> batch) {
+        // Group the records per file so each file gets one write per commit
+        Map<String, List<Entry>> byFile = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            byFile.computeIfAbsent(entry.fileName, f -> new ArrayList<>()).add(entry);
+        }
+
+        for (Map.Entry<String, List<Entry>> group : byFile.entrySet()) {
+            StringBuilder records = new StringBuilder();
+            for (Entry entry : group.getValue()) {
+                records.append(entry.record);
+            }
+
+            try {
+                boolean written;
+                try {
+                    // Shares the file's appender with synchronous writers so blocks never interleave
+                    RecordAppender.forFile(group.getKey())
+                            .appendRecords(records.toString().getBytes(StandardCharsets.UTF_8), force);
+                    written = true;
+                } catch (IOException e) {
+                    Prescription.getEventSink().writeFailed(group.getKey(), group.getValue().size(), e);
+                    written = false;
+                }
+
+                for (Entry entry : group.getValue()) {
+                    entry.future.complete(written);
+                }
+            } catch (RuntimeException e) {
+                // A failing appender or event sink must neither strand the callers nor stop the writer thread
+                for (Entry entry : group.getValue()) {
+                    entry.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String fileName;
+        final String record;
+        final CompletableFuture<Boolean> future;
+
+        Entry(String fileName, String record, CompletableFuture<Boolean> future) {
+            this.fileName = fileName;
+            this.record = record;
+            this.future = future;
+        }
+    }
+}
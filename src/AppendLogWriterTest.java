@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendLogWriterTest {
+
+    private Path directory;
+    private PrescriptionEventSink previousSink;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("append-log");
+        previousSink = Prescription.getEventSink();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Prescription.setEventSink(previousSink);
+        Path file = directory.resolve("records.txt");
+        RecordAppender.forPath(file).close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory.resolve("records.txt.checkpoint"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void test1_Close_EveryAppendCompletes() throws Exception {
+        String file = directory.resolve("records.txt").toString();
+        for (int round = 0; round < 20; round++) {
+            AppendLogWriter writer = new AppendLogWriter();
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            Thread appender = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    futures.add(writer.append(file, "Prescription ID: " + i + "\n\n"));
+                }
+            });
+            appender.start();
+            writer.close();
+            appender.join();
+
+            // Each future is either written or refused as closed; none is left waiting
+            for (CompletableFuture<Boolean> future : futures) {
+                try {
+                    assertTrue(future.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test2_Commit_FailingSinkCompletesFuturesAndKeepsWriting() throws Exception {
+        Prescription.setEventSink(new PrescriptionEventSink() {
+            @Override
+            public void writeFailed(String fileName, int records, IOException error) {
+                throw new IllegalStateException("sink failed");
+            }
+        });
+        try (AppendLogWriter writer = new AppendLogWriter()) {
+            // A directory cannot be appended to, so the write fails and the sink throws
+            CompletableFuture<Boolean> failed = writer.append(directory.toString(), "Prescription ID: 1\n\n");
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> failed.get(5, TimeUnit.SECONDS));
+            assertEquals("sink failed", exception.getCause().getMessage());
+
+            CompletableFuture<Boolean> written = writer.append(directory.resolve("records.txt").toString(),
+                    "Prescription ID: 2\n\n");
+            assertTrue(written.get(5, TimeUnit.SECONDS), "Writer thread should still be running");
+        }
+    }
+}
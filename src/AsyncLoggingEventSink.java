@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Event sink that logs through a bounded ring buffer drained by one background thread.
+// Callers only claim a slot with a CAS and store the event; formatting and printing happen
+// on the logger thread, so submitting threads never contend on the output stream's lock.
+// When the buffer is full the event is dropped rather than blocking the write path; the
+// number of dropped events is logged once there is room again and is available from getDropped().
+// Final, so the logger thread started by the constructor never sees a partly built subclass.
+public final class AsyncLoggingEventSink implements PrescriptionEventSink, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    // Set into claimed by the logger when it stops; no slot can be claimed after that
+    private static final long SEALED = Long.MAX_VALUE;
+
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private final Thread loggerThread;
+    private volatile boolean closed;
+
+    public AsyncLoggingEventSink() {
+        this(System.out, DEFAULT_CAPACITY);
+    }
+
+    // capacity is rounded up to a power of two
+    public AsyncLoggingEventSink(PrintStream out, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(Math.max(size, 1));
+        this.mask = slots.length() - 1;
+        this.out = out;
+        this.loggerThread = new Thread(this::run, "event-sink-logger");
+        this.loggerThread.setDaemon(true);
+        this.loggerThread.start();
+    }
+
+    @Override
+    public void prescriptionRejected(int prescID, List<String> errors) {
+        publish(new Event(Kind.PRESCRIPTION_REJECTED, prescID, null, errors, null));
+    }
+
+    @Override
+    public void prescriptionAdded(int prescID) {
+        publish(new Event(Kind.PRESCRIPTION_ADDED, prescID, null, null, null));
+    }
+
+    @Override
+    public void prescriptionWriteFailed(int prescID, IOException error) {
+        publish(new Event(Kind.PRESCRIPTION_WRITE_FAILED, prescID, null, null, error));
+    }
+
+    @Override
+    public void remarkRejected(int prescID, List<String> errors) {
+        publish(new Event(Kind.REMARK_REJECTED, prescID, null, errors, null));
+    }
+
+    @Override
+    public void remarkAdded(int prescID) {
+        publish(new Event(Kind.REMARK_ADDED, prescID, null, null, null));
+    }
+
+    @Override
+    public void remarkWriteFailed(int prescID, IOException error) {
+        publish(new Event(Kind.REMARK_WRITE_FAILED, prescID, null, null, error));
+    }
+
+    @Override
+    public void writeFailed(String fileName, int records, IOException error) {
+        publish(new Event(Kind.WRITE_FAILED, records, fileName, null, error));
+    }
+
+    // Events dropped so far because the buffer was full
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Stops accepting events, logs everything already buffered and waits for the logger thread
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(loggerThread);
+        try {
+            loggerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(Event event) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            // Also true once sealed, so an event that raced with close() is still counted
+            if (sequence - consumed >= slots.length()) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        // The slot is free: the logger clears it before advancing past it
+        slots.set((int) sequence & mask, event);
+    }
+
+    private void run() {
+        long reportedDrops = 0;
+        while (true) {
+            long sequence = consumed;
+            int slot = (int) sequence & mask;
+            Event event = slots.get(slot);
+            if (event == null) {
+                // A claimed slot may still be being filled; only stop once nothing is claimed, and
+                // seal in the same step so a publisher that passed the closed check cannot claim later
+                if (closed && claimed.compareAndSet(sequence, SEALED)) {
+                    break;
+                }
+                out.flush();
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            slots.set(slot, null);
+            consumed = sequence + 1;
+
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                out.println(Instant.now() + " " + (drops - reportedDrops) + " events dropped, buffer was full");
+                reportedDrops = drops;
+            }
+            out.println(event.format());
+        }
+        out.flush();
+    }
+
+    private enum Kind {
+        PRESCRIPTION_REJECTED, PRESCRIPTION_ADDED, PRESCRIPTION_WRITE_FAILED,
+        REMARK_REJECTED, REMARK_ADDED, REMARK_WRITE_FAILED, WRITE_FAILED
+    }
+
+    // Holds the raw event data; the text is only built on the logger thread
+    private static final class Event {
+        final long timeMillis = System.currentTimeMillis();
+        final Kind kind;
+        final int value; // prescription ID, or the record count for WRITE_FAILED
+        final List<String> errors;
+        final String fileName;
+        final IOException error;
+
+        Event(Kind kind, int value, String fileName, List<String> errors, IOException error) {
+            this.kind = kind;
+            this.value = value;
+            this.fileName = fileName;
+            this.errors = errors;
+            this.error = error;
+        }
+
+        String format() {
+            StringBuilder line = new StringBuilder().append(Instant.ofEpochMilli(timeMillis)).append(' ');
+            switch (kind) {
+                case PRESCRIPTION_REJECTED:
+                    line.append("Prescription ").append(value).append(" rejected");
+                    break;
+                case PRESCRIPTION_ADDED:
+                    line.append("Prescription ").append(value).append(" added");
+                    break;
+                case PRESCRIPTION_WRITE_FAILED:
+                    line.append("Prescription ").append(value).append(" could not be saved");
+                    break;
+                case REMARK_REJECTED:
+                    line.append("Remark for prescription ").append(value).append(" rejected");
+                    break;
+                case REMARK_ADDED:
+                    line.append("Remark for prescription ").append(value).append(" added");
+                    break;
+                case REMARK_WRITE_FAILED:
+                    line.append("Remark for prescription ").append(value).append(" could not be saved");
+                    break;
+                default:
+                    line.append(value).append(" records could not be saved to ").append(fileName);
+                    break;
+            }
+            if (errors != null) {
+                line.append(": ").append(String.join(" | ", errors));
+            }
+            if (error != null) {
+                line.append(": ").append(error.getMessage());
+            }
+            return line.toString();
+        }
+    }
+}
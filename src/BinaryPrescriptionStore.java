@@ -0,0 +1,402 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Binary alternative to presc.txt.
+// File layout: an 8-byte header (magic, format version) followed by records of
+//   int    record length (bytes after this field)
+//   int    prescription ID
+//   float  sphere, cylinder, axis (raw IEEE 754 bits, no text round-trip)
+//   int    examination date as an epoch day (Prescription.NO_EPOCH_DAY when absent)
+//   2 x    unsigned short length + UTF-8 bytes: first name, last name
+//          (length 0xFFFF marks a null string)
+//   2 x    int dictionary code: address, optometrist (-1 for null)
+// Addresses and optometrist names repeat across records, so from version 2 each distinct value
+// is written once to <file>.dict (unsigned short length + UTF-8 bytes per entry, in code order)
+// and records carry its code. A new value is forced to the dictionary before the record that
+// uses it is appended. Version 1 files, which hold all four strings inline, can still be read and
+// appended to. All numbers are big-endian. Appends go through RecordAppender, so records stay atomic.
+public class BinaryPrescriptionStore {
+    static final int MAGIC = 0x50525342; // "PRSB"
+    static final int VERSION = 2;
+    static final int INLINE_VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FIXED_SIZE = 4 + 4 * 3 + 4; // ID, three measurements, epoch day
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final Map<Path, BinaryPrescriptionStore> STORES = new HashMap<>(); // guarded by itself
+
+    private final Path path;
+    private final StringDictionary dictionary; // null for a version 1 file
+
+    private BinaryPrescriptionStore(Path path, StringDictionary dictionary) {
+        this.path = path;
+        this.dictionary = dictionary;
+    }
+
+    public static BinaryPrescriptionStore open(String fileName) throws IOException {
+        return open(Paths.get(fileName));
+    }
+
+    // Opens the store, creating the file with its header if it does not exist yet. Every open()
+    // of the same file returns the same store, so all writers in the process share one dictionary.
+    public static BinaryPrescriptionStore open(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        synchronized (STORES) {
+            BinaryPrescriptionStore store = STORES.get(key);
+            try {
+                Files.write(path, header(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                Files.deleteIfExists(dictionaryPath(path)); // Left over from an earlier store
+                store = null;
+            } catch (FileAlreadyExistsException e) {
+                if (store == null) {
+                    store = load(path, checkHeader(path));
+                }
+            }
+            if (store == null) {
+                store = load(path, VERSION);
+            }
+            STORES.put(key, store);
+            return store;
+        }
+    }
+
+    private static BinaryPrescriptionStore load(Path path, int version) throws IOException {
+        if (version == INLINE_VERSION) {
+            return new BinaryPrescriptionStore(path, null);
+        }
+        Path dictionaryFile = dictionaryPath(path);
+        RecordAppender dictionaryAppender = RecordAppender.forPath(dictionaryFile);
+        return new BinaryPrescriptionStore(path, StringDictionary.of(readDictionary(dictionaryFile), value -> {
+            try {
+                dictionaryAppender.append(dictionaryEntry(value), true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Validates the prescription with the same rules as addPrescription() and appends it
+    public void append(Prescription prescription) throws IOException {
+        List<String> errorList = prescription.validatePrescription();
+        if (!errorList.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errorList));
+        }
+        byte[] record;
+        try {
+            record = encode(prescription, dictionary);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // A new dictionary entry could not be written
+        }
+        RecordAppender.forPath(path).append(record);
+    }
+
+    // Sequential scan of every record in file order
+    public Stream<Prescription> prescriptions() throws IOException {
+        RecordIterator records = new RecordIterator(FileChannel.open(path, StandardOpenOption.READ), dictionary);
+        Spliterator<Prescription> spliterator = Spliterators.spliteratorUnknownSize(records,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(records::close);
+    }
+
+    // Converts a presc.txt-format file into a new binary store and returns the number of records.
+    // The dictionary is built in memory and written once the records are.
+    public static long convert(Path textFile, Path binaryFile) throws IOException {
+        synchronized (STORES) {
+            STORES.remove(binaryFile.toAbsolutePath().normalize()); // Its dictionary is about to be replaced
+        }
+        Files.write(binaryFile, header(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        StringDictionary dictionary = new StringDictionary();
+
+        long count = 0;
+        try (MappedRecordReader reader = MappedRecordReader.open(textFile);
+             FileChannel out = FileChannel.open(binaryFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            MappedRecordReader.Cursor cursor = reader.cursor();
+            while (cursor.next()) {
+                if (!cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    continue;
+                }
+                Prescription prescription = cursor.toPrescription();
+                int size = encodedSize(prescription, dictionary);
+                if (buffer.remaining() < size) {
+                    flush(buffer, out);
+                    if (buffer.capacity() < size) {
+                        buffer = ByteBuffer.allocate(size);
+                    }
+                }
+                encode(prescription, dictionary, buffer);
+                count++;
+            }
+            flush(buffer, out);
+        }
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        for (String value : dictionary.values()) {
+            entries.writeBytes(dictionaryEntry(value));
+        }
+        Files.write(dictionaryPath(binaryFile), entries.toByteArray());
+        return count;
+    }
+
+    // dictionary is null for the version 1 layout with every string inline
+    static byte[] encode(Prescription prescription, StringDictionary dictionary) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(prescription, dictionary));
+        encode(prescription, dictionary, buffer);
+        return buffer.array();
+    }
+
+    // Writes the length-prefixed record into the buffer
+    static void encode(Prescription prescription, StringDictionary dictionary, ByteBuffer out) {
+        out.putInt(encodedSize(prescription, dictionary) - 4);
+        out.putInt(prescription.getPrescID());
+        out.putFloat(prescription.getSphere());
+        out.putFloat(prescription.getCylinder());
+        out.putFloat(prescription.getAxis());
+        out.putInt(prescription.examinationEpochDay());
+        putString(out, prescription.getFirstName());
+        putString(out, prescription.getLastName());
+        if (dictionary == null) {
+            putString(out, prescription.getAddress());
+            putString(out, prescription.getOptometrist());
+        } else {
+            out.putInt(code(dictionary, prescription.getAddress()));
+            out.putInt(code(dictionary, prescription.getOptometrist()));
+        }
+    }
+
+    // Reads one record body (the bytes after the length field)
+    static Prescription decode(ByteBuffer in, StringDictionary dictionary) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(in.getInt());
+        prescription.setSphere(in.getFloat());
+        prescription.setCylinder(in.getFloat());
+        prescription.setAxis(in.getFloat());
+        prescription.setExaminationDate(Prescription.dateFromEpochDay(in.getInt()));
+        prescription.setFirstName(getString(in));
+        prescription.setLastName(getString(in));
+        if (dictionary == null) {
+            prescription.setAddress(getString(in));
+            prescription.setOptometrist(getString(in));
+        } else {
+            // Records decoded from the same store share the dictionary's String instances
+            prescription.setAddress(value(dictionary, in.getInt()));
+            prescription.setOptometrist(value(dictionary, in.getInt()));
+        }
+        return prescription;
+    }
+
+    // Total encoded size including the length field
+    static int encodedSize(Prescription prescription, StringDictionary dictionary) {
+        int size = 4 + FIXED_SIZE
+                + stringSize(prescription.getFirstName())
+                + stringSize(prescription.getLastName());
+        if (dictionary == null) {
+            return size + stringSize(prescription.getAddress()) + stringSize(prescription.getOptometrist());
+        }
+        return size + 4 + 4;
+    }
+
+    private static int code(StringDictionary dictionary, String value) {
+        return value == null ? -1 : dictionary.encode(value);
+    }
+
+    private static String value(StringDictionary dictionary, int code) {
+        return code == -1 ? null : dictionary.decode(code);
+    }
+
+    private static Path dictionaryPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".dict");
+    }
+
+    private static byte[] dictionaryEntry(String value) {
+        ByteBuffer entry = ByteBuffer.allocate(stringSize(value));
+        putString(entry, value);
+        return entry.array();
+    }
+
+    // Reads the saved entries in code order. An entry cut short by a crash is cut off the file:
+    // no record can use it, since records are only appended once their entries are on disk.
+    private static List<String> readDictionary(Path dictionaryFile) throws IOException {
+        List<String> entries = new ArrayList<>();
+        if (!Files.exists(dictionaryFile)) {
+            return entries;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(dictionaryFile));
+        while (in.remaining() >= 2 && in.remaining() >= 2 + (in.getShort(in.position()) & 0xFFFF)) {
+            entries.add(getString(in));
+        }
+        if (in.hasRemaining()) {
+            RecordAppender.forPath(dictionaryFile).truncate(in.position());
+        }
+        return entries;
+    }
+
+    static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("Value is too long for the binary format.");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int stringSize(String value) {
+        if (value == null) {
+            return 2;
+        }
+        return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).array();
+    }
+
+    // Returns the file's format version
+    private static int checkHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a binary prescription store.");
+            }
+            int version = header.getInt();
+            if (version != VERSION && version != INLINE_VERSION) {
+                throw new IOException(path + " uses unsupported format version " + version + ".");
+            }
+            return version;
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Reads records through a large heap buffer, refilling it as records are consumed
+    private static final class RecordIterator implements Iterator<Prescription> {
+        private final FileChannel channel;
+        private final StringDictionary dictionary;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private long position = HEADER_SIZE;
+        private Prescription next;
+        private boolean done;
+
+        RecordIterator(FileChannel channel, StringDictionary dictionary) {
+            this.channel = channel;
+            this.dictionary = dictionary;
+            buffer.limit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = readNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Prescription next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Prescription result = next;
+            next = null;
+            return result;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Prescription readNext() {
+            try {
+                if (!fill(4)) {
+                    return null;
+                }
+                int length = buffer.getInt(buffer.position());
+                if (!fill(4 + length)) {
+                    throw new IOException("Truncated record at offset " + position + " in " + channel + ".");
+                }
+                buffer.position(buffer.position() + 4);
+                int recordEnd = buffer.position() + length;
+                Prescription prescription = decode(buffer, dictionary);
+                buffer.position(recordEnd);
+                position += 4 + length;
+                return prescription;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Makes sure at least count bytes are buffered; false at a clean end of file
+        private boolean fill(int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return true;
+            }
+            if (buffer.capacity() < count) {
+                ByteBuffer larger = ByteBuffer.allocate(count);
+                larger.put(buffer);
+                larger.flip();
+                buffer = larger;
+            }
+            buffer.compact();
+            long readAt = position + buffer.position();
+            int read;
+            while (buffer.hasRemaining() && (read = channel.read(buffer, readAt)) > 0) {
+                readAt += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= count;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryPrescriptionStoreTest {
+
+    private Path textFile;
+    private Path binaryFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        textFile = Files.createTempFile("presc-text", ".txt");
+        binaryFile = Files.createTempFile("presc-binary", ".bin");
+        Files.delete(binaryFile);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        RecordAppender.forPath(binaryFile).close();
+        Files.deleteIfExists(textFile);
+        Files.deleteIfExists(binaryFile);
+        Files.deleteIfExists(dictionaryFile(binaryFile));
+    }
+
+    @Test
+    public void test1_Append_RoundTripsEveryField() throws Exception {
+        BinaryPrescriptionStore store = BinaryPrescriptionStore.open(binaryFile);
+        Prescription original = newPrescription(7);
+        store.append(original);
+
+        try (Stream<Prescription> records = store.prescriptions()) {
+            List<Prescription> all = records.collect(Collectors.toList());
+            assertEquals(1, all.size());
+            Prescription copy = all.get(0);
+            assertEquals(7, copy.getPrescID());
+            assertEquals("Nixon", copy.getFirstName());
+            assertEquals("Paulson", copy.getLastName());
+            assertEquals(original.getAddress(), copy.getAddress());
+            assertEquals(-5.25f, copy.getSphere());
+            assertEquals(-1.75f, copy.getCylinder());
+            assertEquals(90.0f, copy.getAxis());
+            assertEquals(original.examinationEpochDay(), copy.examinationEpochDay());
+            assertEquals("doctor Raghav", copy.getOptometrist());
+        }
+    }
+
+    @Test
+    public void test2_Append_RejectsInvalidPrescription() throws Exception {
+        BinaryPrescriptionStore store = BinaryPrescriptionStore.open(binaryFile);
+        Prescription invalid = newPrescription(8);
+        invalid.setSphere(-25.00f);
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            store.append(invalid);
+        });
+        assertTrue(exception.getMessage().contains("Sphere value must be between -20.00 and 20.00."),
+                "Exception message should contain sphere value out of range error");
+    }
+
+    @Test
+    public void test3_Convert_TextFileIsSmallerAsBinary() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int id = 1; id <= 500; id++) {
+            text.append(newPrescription(id).formatPrescription());
+        }
+        Files.write(textFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(500, BinaryPrescriptionStore.convert(textFile, binaryFile));
+        assertTrue(Files.size(binaryFile) < Files.size(textFile), "Binary file should be smaller than text");
+
+        try (Stream<Prescription> records = BinaryPrescriptionStore.open(binaryFile).prescriptions()) {
+            assertEquals(500, records.filter(p -> p.getSphere() == -5.25f).count());
+        }
+    }
+
+    @Test
+    public void test4_Append_RepeatedValuesAreWrittenOnceAndSurviveReopen() throws Exception {
+        BinaryPrescriptionStore store = BinaryPrescriptionStore.open(binaryFile);
+        for (int id = 1; id <= 100; id++) {
+            store.append(newPrescription(id));
+        }
+        Prescription other = newPrescription(101);
+        other.setOptometrist("doctor Mehta");
+        store.append(other);
+        RecordAppender.forPath(binaryFile).close();
+        RecordAppender.forPath(dictionaryFile(binaryFile)).close();
+
+        // Each record holds two 4-byte codes instead of the address and optometrist text
+        String address = newPrescription(1).getAddress();
+        long inlineSize = 101L * (2 + address.length() + 2 + "doctor Raghav".length());
+        assertTrue(Files.size(binaryFile) < inlineSize, "Repeated strings should not be stored per record");
+        assertEquals(2 + address.length() + 2 + "doctor Raghav".length() + 2 + "doctor Mehta".length(),
+                Files.size(dictionaryFile(binaryFile)), "Dictionary should hold the address and two optometrists");
+
+        // A copy of the files is opened fresh and loads the dictionary from disk
+        Path copy = Files.createTempFile("presc-binary-copy", ".bin");
+        try {
+            Files.copy(binaryFile, copy, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(dictionaryFile(binaryFile), dictionaryFile(copy));
+            try (Stream<Prescription> records = BinaryPrescriptionStore.open(copy).prescriptions()) {
+                List<Prescription> all = records.collect(Collectors.toList());
+                assertEquals(101, all.size());
+                assertEquals(address, all.get(0).getAddress());
+                assertEquals("doctor Raghav", all.get(99).getOptometrist());
+                assertEquals("doctor Mehta", all.get(100).getOptometrist());
+            }
+        } finally {
+            RecordAppender.forPath(copy).close();
+            RecordAppender.forPath(dictionaryFile(copy)).close();
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(dictionaryFile(copy));
+        }
+    }
+
+    @Test
+    public void test5_Open_ReadsAndAppendsToVersion1File() throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(BinaryPrescriptionStore.HEADER_SIZE)
+                .putInt(BinaryPrescriptionStore.MAGIC).putInt(BinaryPrescriptionStore.INLINE_VERSION);
+        Files.write(binaryFile, header.array());
+        Files.write(binaryFile, BinaryPrescriptionStore.encode(newPrescription(1), null), StandardOpenOption.APPEND);
+
+        BinaryPrescriptionStore store = BinaryPrescriptionStore.open(binaryFile);
+        store.append(newPrescription(2));
+
+        assertFalse(Files.exists(dictionaryFile(binaryFile)), "Version 1 stores keep strings inline");
+        try (Stream<Prescription> records = store.prescriptions()) {
+            List<Prescription> all = records.collect(Collectors.toList());
+            assertEquals(2, all.size());
+            assertEquals("doctor Raghav", all.get(1).getOptometrist());
+            assertEquals(newPrescription(2).getAddress(), all.get(1).getAddress());
+        }
+    }
+
+    private static Path dictionaryFile(Path binaryFile) {
+        return binaryFile.resolveSibling(binaryFile.getFileName() + ".dict");
+    }
+
+    private static Prescription newPrescription(int id) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Nixon");
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.25f);
+        prescription.setCylinder(-1.75f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+        return prescription;
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Non-interactive bulk import of prescriptions from a CSV or JSONL feed.
+// The input is streamed in chunks; each chunk is parsed and validated in parallel on a
+// fork-join pool with the same rules as addPrescription(), then the accepted records are
+// appended to the target file in input order with one write per chunk. Rejected rows are
+// written to a side file together with their error messages.
+//
+// Both formats use the field names prescID, firstName, lastName, address, sphere, cylinder,
+// axis, examinationDate (dd/MM/yy) and optometrist. CSV files need a header row naming the
+// columns; quoted CSV fields may contain commas and doubled quotes but not line breaks.
+// With a PrescriptionIdRegistry, accepted rows claim their IDs in input order before the chunk
+// is written, so a duplicate of an existing ID or of an earlier row is rejected like any other error.
+public class BulkImporter {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Path target;
+    private final Path rejects;
+    private final ForkJoinPool pool;
+    private final PrescriptionIdRegistry registry; // null: IDs are not checked
+
+    public BulkImporter(Path target, Path rejects, ForkJoinPool pool) {
+        this(target, rejects, pool, null);
+    }
+
+    public BulkImporter(Path target, Path rejects, ForkJoinPool pool, PrescriptionIdRegistry registry) {
+        this.target = target;
+        this.rejects = rejects;
+        this.pool = pool;
+        this.registry = registry;
+    }
+
+    // Usage: BulkImporter <feed.csv|feed.jsonl> [rejects file] [target file]
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BulkImporter <feed.csv|feed.jsonl> [rejects file] [target file]");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path rejects = Paths.get(args.length > 1 ? args[1] : args[0] + ".rejected.txt");
+        Path target = Paths.get(args.length > 2 ? args[2] : "presc.txt");
+
+        PrescriptionMetrics.global().registerMBeans();
+        try {
+            PrescriptionIdRegistry registry = PrescriptionIdRegistry.load(target,
+                    PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+            Summary summary = new BulkImporter(target, rejects, ForkJoinPool.commonPool(), registry).importFile(input);
+            System.out.println("Imported " + summary.getAccepted() + " of " + summary.getRead() + " prescriptions.");
+            if (summary.getRejected() > 0) {
+                System.out.println(summary.getRejected() + " rows were rejected; see " + rejects + ".");
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred while importing " + input + ": " + e.getMessage());
+        }
+    }
+
+    public Summary importFile(Path input) throws IOException {
+        boolean json = input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+        Summary summary = new Summary();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejected = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            String[] header = null;
+            if (!json) {
+                String headerLine = reader.readLine();
+                if (headerLine == null) {
+                    return summary;
+                }
+                header = parseCsvLine(headerLine).toArray(new String[0]);
+            }
+
+            long lineNumber = json ? 0 : 1;
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            long[] lineNumbers = new long[CHUNK_SIZE];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lineNumbers[chunk.size()] = lineNumber;
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    importChunk(chunk, lineNumbers, header, rejected, summary);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, lineNumbers, header, rejected, summary);
+            }
+        }
+        return summary;
+    }
+
+    private void importChunk(List<String> lines, long[] lineNumbers, String[] header,
+                             BufferedWriter rejected, Summary summary) throws IOException {
+        // Parse and validate in parallel; toArray keeps the input order
+        Row[] rows;
+        try {
+            rows = pool.submit(() -> IntStream.range(0, lines.size())
+                    .parallel()
+                    .mapToObj(i -> toRow(lines.get(i), header))
+                    .toArray(Row[]::new)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed unexpectedly.", e.getCause());
+        }
+
+        // IDs are claimed sequentially, so the first of two duplicate rows is the one accepted
+        List<Integer> claimed = new ArrayList<>();
+        if (registry != null) {
+            for (int i = 0; i < rows.length; i++) {
+                if (!rows[i].errors.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (registry.claim(rows[i].prescID)) {
+                        claimed.add(rows[i].prescID);
+                    }
+                } catch (IllegalArgumentException e) {
+                    PrescriptionMetrics.global().recordRejection("duplicateId");
+                    rows[i] = Row.rejected(List.of(e.getMessage()));
+                }
+            }
+        }
+
+        StringBuilder accepted = new StringBuilder();
+        for (int i = 0; i < rows.length; i++) {
+            summary.read++;
+            if (rows[i].errors.isEmpty()) {
+                accepted.append(rows[i].record);
+                summary.accepted++;
+            } else {
+                summary.rejected++;
+                rejected.write("Line " + lineNumbers[i] + ": " + lines.get(i));
+                rejected.newLine();
+                for (String error : rows[i].errors) {
+                    rejected.write("- " + error);
+                    rejected.newLine();
+                }
+                rejected.newLine();
+            }
+        }
+        if (accepted.length() > 0) {
+            try {
+                RecordAppender.forPath(target).appendRecords(accepted.toString());
+            } catch (IOException e) {
+                for (int prescID : claimed) {
+                    registry.release(prescID);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static Row toRow(String line, String[] header) {
+        Map<String, String> fields;
+        try {
+            fields = header == null ? FlatJson.parseObject(line) : csvFields(header, parseCsvLine(line));
+        } catch (IllegalArgumentException e) {
+            return Row.rejected(List.of("Row could not be parsed: " + e.getMessage()));
+        }
+
+        List<String> errorList = new ArrayList<>();
+        Prescription prescription = Prescription.fromFields(fields, errorList);
+        int failed = PrescriptionValidator.DEFAULT.validate(prescription);
+        if (failed != 0) {
+            PrescriptionMetrics.global().recordRejections(failed);
+            errorList.addAll(PrescriptionValidator.DEFAULT.messages(failed));
+        }
+        if (!errorList.isEmpty()) {
+            return Row.rejected(errorList);
+        }
+        return Row.accepted(prescription.getPrescID(), prescription.formatPrescription());
+    }
+
+    private static Map<String, String> csvFields(String[] header, List<String> values) {
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("expected " + header.length + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            fields.put(header[i].trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    // Splits one CSV line; quoted fields may contain commas and "" for a literal quote
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    // Counts for one import run
+    public static class Summary {
+        private long read;
+        private long accepted;
+        private long rejected;
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+
+    private static final class Row {
+        final int prescID;
+        final String record;
+        final List<String> errors;
+
+        private Row(int prescID, String record, List<String> errors) {
+            this.prescID = prescID;
+            this.record = record;
+            this.errors = errors;
+        }
+
+        static Row accepted(int prescID, String record) {
+            return new Row(prescID, record, List.of());
+        }
+
+        static Row rejected(List<String> errors) {
+            return new Row(0, null, errors);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkImporterTest {
+
+    private Path input;
+    private Path target;
+    private Path rejects;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        target = Files.createTempFile("presc-import", ".txt");
+        rejects = Files.createTempFile("presc-rejects", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        RecordAppender.forPath(target).close();
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(rejects);
+    }
+
+    @Test
+    public void test1_ImportCsv_PreservesOrderAndWritesRejects() throws Exception {
+        input = Files.createTempFile("feed", ".csv");
+        StringBuilder csv = new StringBuilder(
+                "prescID,firstName,lastName,address,sphere,cylinder,axis,examinationDate,optometrist\n");
+        for (int id = 1; id <= 20_000; id++) {
+            // Every 1000th row has an axis out of range
+            String axis = id % 1000 == 0 ? "200" : "90";
+            csv.append(id).append(",Nixon,Paulson,\"12 Main Street, Springfield, IL\",-5.0,-1.0,")
+                    .append(axis).append(",23/10/24,Dr. Robert Smith\n");
+        }
+        Files.write(input, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        BulkImporter.Summary summary = new BulkImporter(target, rejects, new ForkJoinPool(4)).importFile(input);
+
+        assertEquals(20_000, summary.getRead());
+        assertEquals(19_980, summary.getAccepted());
+        assertEquals(20, summary.getRejected());
+
+        try (MappedRecordReader reader = MappedRecordReader.open(target)) {
+            List<Integer> ids = reader.prescriptions().map(Prescription::getPrescID).collect(Collectors.toList());
+            assertEquals(19_980, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i), "Accepted records should keep input order");
+            }
+        }
+
+        String rejected = new String(Files.readAllBytes(rejects), StandardCharsets.UTF_8);
+        assertTrue(rejected.contains("Line 1001: 1000,Nixon"), "Rejected row should be recorded with its line");
+        assertTrue(rejected.contains("- Axis value must be between 0 and 180."), "Rejected row should carry its error");
+    }
+
+    @Test
+    public void test2_ImportJsonl_ReportsParseAndValidationErrors() throws Exception {
+        input = Files.createTempFile("feed", ".jsonl");
+        String jsonl = "{\"prescID\": 1, \"firstName\": \"Alice\", \"lastName\": \"Johnson\", "
+                + "\"address\": \"123 Main Street, Springfield, IL 62704, USA\", \"sphere\": -5.0, "
+                + "\"cylinder\": -1.0, \"axis\": 90, \"examinationDate\": \"23/10/24\", "
+                + "\"optometrist\": \"Dr. Robert Smith\"}\n"
+                + "{\"prescID\": \"two\", \"firstName\": \"Al\"}\n"
+                + "not json\n";
+        Files.write(input, jsonl.getBytes(StandardCharsets.UTF_8));
+
+        BulkImporter.Summary summary = new BulkImporter(target, rejects, ForkJoinPool.commonPool()).importFile(input);
+
+        assertEquals(1, summary.getAccepted());
+        assertEquals(2, summary.getRejected());
+        String rejected = new String(Files.readAllBytes(rejects), StandardCharsets.UTF_8);
+        assertTrue(rejected.contains("- Invalid input. Prescription ID must be an integer."));
+        assertTrue(rejected.contains("- First name must be between 4 and 15 characters long."));
+        assertTrue(rejected.contains("- Row could not be parsed:"));
+    }
+
+    @Test
+    public void test3_ImportCsv_WithRegistryRejectsDuplicateIds() throws Exception {
+        input = Files.createTempFile("feed", ".csv");
+        String row = ",Nixon,Paulson,\"12 Main Street, Springfield, IL\",-5.0,-1.0,90,23/10/24,Dr. Robert Smith\n";
+        String csv = "prescID,firstName,lastName,address,sphere,cylinder,axis,examinationDate,optometrist\n"
+                + "1" + row + "2" + row + "2" + row + "3" + row;
+        Files.write(input, csv.getBytes(StandardCharsets.UTF_8));
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+        registry.claim(3);
+
+        BulkImporter.Summary summary = new BulkImporter(target, rejects, ForkJoinPool.commonPool(), registry)
+                .importFile(input);
+
+        assertEquals(2, summary.getAccepted());
+        assertEquals(2, summary.getRejected());
+        String rejected = new String(Files.readAllBytes(rejects), StandardCharsets.UTF_8);
+        assertTrue(rejected.contains("Line 4: 2,Nixon"), "Second row with ID 2 should be rejected");
+        assertTrue(rejected.contains("- Prescription ID 3 already exists."));
+    }
+
+    @Test
+    public void test4_ImportJsonl_RejectsLineBreaksInFields() throws Exception {
+        input = Files.createTempFile("feed", ".jsonl");
+        // The escaped line breaks would otherwise end the record and start a forged one
+        String jsonl = "{\"prescID\": 1, \"firstName\": \"Alice\", \"lastName\": \"Johnson\", "
+                + "\"address\": \"123 Main Street\\n\\nPrescription ID: 999\\nFirst Name: Mallory\", "
+                + "\"sphere\": -5.0, \"cylinder\": -1.0, \"axis\": 90, \"examinationDate\": \"23/10/24\", "
+                + "\"optometrist\": \"Dr. Robert Smith\"}\n";
+        Files.write(input, jsonl.getBytes(StandardCharsets.UTF_8));
+
+        BulkImporter.Summary summary = new BulkImporter(target, rejects, ForkJoinPool.commonPool()).importFile(input);
+
+        assertEquals(0, summary.getAccepted());
+        assertEquals(1, summary.getRejected());
+        assertEquals(0, Files.size(target), "Nothing should be written to the target");
+        String rejected = new String(Files.readAllBytes(rejects), StandardCharsets.UTF_8);
+        assertTrue(rejected.contains("- Text fields cannot contain line breaks or other control characters."));
+    }
+}
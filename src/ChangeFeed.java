@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Incremental feed of the prescriptions and remarks appended to presc.txt and remark.txt, for
+// downstream systems that would otherwise rescan the files. Each named subscriber has a byte
+// offset per file; poll() reads only the records after it and waits for the next append when
+// there are none. In-process writers wake waiting polls through RecordAppender's append
+// listeners; appends from other processes are picked up when the wait times out.
+//
+// commit() saves a subscriber's offsets to <offset dir>/<name>.offsets, and subscribe() resumes
+// from there, so delivery is at least once: records polled but not committed before a restart
+// are delivered again. If a file was compacted or cut back since the saved offset, that file is
+// read again from the start. Consumers should treat records as upserts by prescription ID.
+public class ChangeFeed implements AutoCloseable {
+    private static final int MAX_BATCH_RECORDS = 10_000;
+    private static final Pattern SUBSCRIBER_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final String PRESCRIPTIONS_LABEL = "Prescriptions";
+    private static final String REMARKS_LABEL = "Remarks";
+    private static final String FILE_SUFFIX = " File";
+
+    private final Path prescriptionFile;
+    private final Path remarkFile;
+    private final Path offsetDir;
+    private final Object signal = new Object();
+    private final Runnable listener = this::signal;
+    private long appends; // guarded by signal
+    private boolean closed; // guarded by signal
+
+    public ChangeFeed(Path prescriptionFile, Path remarkFile, Path offsetDir) throws IOException {
+        this.prescriptionFile = prescriptionFile;
+        this.remarkFile = remarkFile;
+        this.offsetDir = offsetDir;
+        Files.createDirectories(offsetDir);
+        RecordAppender.forPath(prescriptionFile).addAppendListener(listener);
+        RecordAppender.forPath(remarkFile).addAppendListener(listener);
+    }
+
+    // Resumes the subscriber from its committed offsets, or starts it at the beginning of both files
+    public Subscription subscribe(String name) throws IOException {
+        if (!SUBSCRIBER_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Subscriber names may only use letters, digits, '-' and '_'.");
+        }
+        Map<String, String> fields = new HashMap<>();
+        Path file = offsetFile(name);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int colon = line.indexOf(": ");
+                if (colon > 0) {
+                    fields.put(line.substring(0, colon), line.substring(colon + 2).trim());
+                }
+            }
+        }
+        return new Subscription(name, Position.from(fields, PRESCRIPTIONS_LABEL), Position.from(fields, REMARKS_LABEL));
+    }
+
+    // Stops listening for appends and releases any poll() that is waiting
+    @Override
+    public void close() {
+        RecordAppender.forPath(prescriptionFile).removeAppendListener(listener);
+        RecordAppender.forPath(remarkFile).removeAppendListener(listener);
+        synchronized (signal) {
+            closed = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void signal() {
+        synchronized (signal) {
+            appends++;
+            signal.notifyAll();
+        }
+    }
+
+    private Path offsetFile(String name) {
+        return offsetDir.resolve(name + ".offsets");
+    }
+
+    // Reads the complete records after the position, at most MAX_BATCH_RECORDS of them, and moves
+    // the position past them. Returns true when the file had been replaced or cut back, so it was
+    // read from the start instead.
+    private static <T> boolean read(Path file, Position position, Function<MappedRecordReader.Cursor, T> decode,
+                                    List<T> records) throws IOException {
+        long end = RecordAppender.forPath(file).size();
+        String fileKey = String.valueOf(Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        boolean restarted = false;
+        if ((position.fileKey != null && !position.fileKey.equals(fileKey)) || position.offset > end
+                || !RecordRecovery.atRecordBoundary(file, position.offset)) {
+            position.offset = 0;
+            restarted = true;
+        }
+        position.fileKey = fileKey;
+        if (position.offset == end) {
+            return restarted;
+        }
+        try (MappedRecordReader reader = MappedRecordReader.open(file)) {
+            MappedRecordReader.Cursor cursor = reader.cursor(position.offset, end);
+            while (records.size() < MAX_BATCH_RECORDS && cursor.next()) {
+                // A block without its blank line yet is still being written by another process
+                if (cursor.nextOffset() >= end) {
+                    break;
+                }
+                if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    records.add(decode.apply(cursor));
+                }
+                position.offset = cursor.nextOffset() + 1;
+            }
+        }
+        return restarted;
+    }
+
+    // One consumer's position in both files. Not thread-safe; use one thread per subscription.
+    public final class Subscription {
+        private final String name;
+        private final Position prescriptions;
+        private final Position remarks;
+        // A file was read again from the start, but no records from it have been delivered yet
+        private boolean restartPending;
+
+        private Subscription(String name, Position prescriptions, Position remarks) {
+            this.name = name;
+            this.prescriptions = prescriptions;
+            this.remarks = remarks;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getPrescriptionOffset() {
+            return prescriptions.offset;
+        }
+
+        public long getRemarkOffset() {
+            return remarks.offset;
+        }
+
+        // Returns the records appended since the last poll, waiting up to the timeout for one to
+        // arrive. The batch is empty when the timeout passes or the feed is closed first.
+        public Batch poll(Duration timeout) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (true) {
+                long seen;
+                synchronized (signal) {
+                    seen = appends;
+                }
+                Batch batch = next();
+                if (!batch.isEmpty()) {
+                    return batch;
+                }
+                synchronized (signal) {
+                    while (appends == seen && !closed) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return batch;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+                    }
+                    if (closed) {
+                        return batch;
+                    }
+                }
+            }
+        }
+
+        // Saves the position reached by the last poll, so the subscriber resumes after it
+        public void commit() throws IOException {
+            Path file = offsetFile(name);
+            Path temporary = offsetDir.resolve(name + ".offsets.tmp");
+            Files.write(temporary, (prescriptions.format(PRESCRIPTIONS_LABEL) + remarks.format(REMARKS_LABEL))
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private Batch next() throws IOException {
+            List<Prescription> newPrescriptions = new ArrayList<>();
+            List<Remark> newRemarks = new ArrayList<>();
+            if (Files.exists(prescriptionFile)) {
+                restartPending |= read(prescriptionFile, prescriptions, MappedRecordReader.Cursor::toPrescription,
+                        newPrescriptions);
+            }
+            if (Files.exists(remarkFile)) {
+                restartPending |= read(remarkFile, remarks, MappedRecordReader.Cursor::toRemark, newRemarks);
+            }
+            Batch batch = new Batch(newPrescriptions, newRemarks, restartPending);
+            // A restart found while the new file had no complete records yet is carried over, so
+            // the first batch with records from it still tells the consumer to start over
+            if (!batch.isEmpty()) {
+                restartPending = false;
+            }
+            return batch;
+        }
+    }
+
+    // Offset into one file, and the identity of the file it refers to (null until first read)
+    private static final class Position {
+        private long offset;
+        private String fileKey;
+
+        private Position(long offset, String fileKey) {
+            this.offset = offset;
+            this.fileKey = fileKey;
+        }
+
+        private static Position from(Map<String, String> fields, String label) {
+            String offset = fields.get(label);
+            return new Position(offset == null ? 0 : Long.parseLong(offset), fields.get(label + FILE_SUFFIX));
+        }
+
+        private String format(String label) {
+            return label + ": " + offset + "\n" + (fileKey == null ? "" : label + FILE_SUFFIX + ": " + fileKey + "\n");
+        }
+    }
+
+    // Records delivered by one poll, each list in file order
+    public static class Batch {
+        private final List<Prescription> prescriptions;
+        private final List<Remark> remarks;
+        private final boolean restarted;
+
+        private Batch(List<Prescription> prescriptions, List<Remark> remarks, boolean restarted) {
+            this.prescriptions = prescriptions;
+            this.remarks = remarks;
+            this.restarted = restarted;
+        }
+
+        public List<Prescription> getPrescriptions() {
+            return prescriptions;
+        }
+
+        public List<Remark> getRemarks() {
+            return remarks;
+        }
+
+        // True when a file was replaced or cut back and is being read again from the start. Stays
+        // set on the following batches until one of them carries records.
+        public boolean isRestarted() {
+            return restarted;
+        }
+
+        public boolean isEmpty() {
+            return prescriptions.isEmpty() && remarks.isEmpty();
+        }
+    }
+}
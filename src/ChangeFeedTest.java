@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+
+    private Path dir;
+    private Path prescFile;
+    private Path remarkFile;
+    private ChangeFeed feed;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("presc-feed");
+        prescFile = dir.resolve("presc.txt");
+        remarkFile = dir.resolve("remark.txt");
+        feed = new ChangeFeed(prescFile, remarkFile, dir.resolve("offsets"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        feed.close();
+        RecordAppender.forPath(prescFile).close();
+        RecordAppender.forPath(remarkFile).close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String prescription(int id, String optometrist) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist(optometrist);
+        return prescription.formatPrescription();
+    }
+
+    private static List<Integer> ids(ChangeFeed.Batch batch) {
+        return batch.getPrescriptions().stream().map(Prescription::getPrescID).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test1_Poll_DeliversOnlyNewRecords() throws Exception {
+        RecordAppender.forPath(prescFile).appendRecords(prescription(1, "Dr. Smith") + prescription(2, "Dr. Smith"));
+        RecordAppender.forPath(remarkFile).appendRecords(new Remark(1, "Client", "This is a valid remark from the client.").format());
+        ChangeFeed.Subscription billing = feed.subscribe("billing");
+
+        ChangeFeed.Batch first = billing.poll(Duration.ZERO);
+        assertEquals(List.of(1, 2), ids(first));
+        assertEquals(1, first.getRemarks().size());
+        assertEquals("Client", first.getRemarks().get(0).getRemarkType());
+        assertTrue(billing.poll(Duration.ZERO).isEmpty(), "Nothing new should mean an empty batch");
+
+        RecordAppender.forPath(prescFile).appendRecords(prescription(3, "Dr. Smith"));
+        ChangeFeed.Batch second = billing.poll(Duration.ZERO);
+        assertEquals(List.of(3), ids(second));
+        assertTrue(second.getRemarks().isEmpty());
+        assertEquals(Files.size(prescFile), billing.getPrescriptionOffset());
+    }
+
+    @Test
+    public void test2_Poll_WakesOnAppend() throws Exception {
+        ChangeFeed.Subscription lab = feed.subscribe("lab");
+        CompletableFuture<ChangeFeed.Batch> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return lab.poll(Duration.ofSeconds(30));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone(), "Poll should wait while there is nothing to deliver");
+
+        RecordAppender.forPath(prescFile).appendRecords(prescription(7, "Dr. Smith"));
+        assertEquals(List.of(7), ids(waiting.get(5, TimeUnit.SECONDS)), "Append should wake the poll");
+    }
+
+    @Test
+    public void test3_Subscribe_ResumesFromCommittedOffsets() throws Exception {
+        RecordAppender.forPath(prescFile).appendRecords(prescription(1, "Dr. Smith"));
+        ChangeFeed.Subscription billing = feed.subscribe("billing");
+        assertEquals(List.of(1), ids(billing.poll(Duration.ZERO)));
+        billing.commit();
+
+        RecordAppender.forPath(prescFile).appendRecords(prescription(2, "Dr. Smith"));
+        assertEquals(List.of(2), ids(billing.poll(Duration.ZERO)));
+        // Not committed, so a restarted subscriber gets record 2 again but not record 1
+
+        ChangeFeed.Subscription resumed = feed.subscribe("billing");
+        assertEquals(List.of(2), ids(resumed.poll(Duration.ZERO)));
+        assertEquals(List.of(1, 2), ids(feed.subscribe("audit").poll(Duration.ZERO)),
+                "Each subscriber should have its own offsets");
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe("../billing"));
+    }
+
+    @Test
+    public void test4_Poll_SkipsRecordStillBeingWritten() throws Exception {
+        RecordAppender.forPath(prescFile).appendRecords(prescription(1, "Dr. Smith"));
+        String next = prescription(2, "Dr. Smith");
+        // Another process has written only part of the next record
+        Files.writeString(prescFile, next.substring(0, 40), StandardOpenOption.APPEND);
+        ChangeFeed.Subscription lab = feed.subscribe("lab");
+        assertEquals(List.of(1), ids(lab.poll(Duration.ZERO)));
+
+        Files.writeString(prescFile, next.substring(40), StandardOpenOption.APPEND);
+        assertEquals(List.of(2), ids(lab.poll(Duration.ZERO)), "Record should be delivered once complete");
+    }
+
+    @Test
+    public void test5_Poll_RestartsAfterCompaction() throws Exception {
+        RecordAppender.forPath(prescFile).appendRecords(prescription(1, "Dr. Smith") + prescription(1, "Dr. Jones")
+                + prescription(2, "Dr. Smith"));
+        ChangeFeed.Subscription lab = feed.subscribe("lab");
+        assertEquals(List.of(1, 1, 2), ids(lab.poll(Duration.ZERO)));
+
+        new RecordCompactor(prescFile, remarkFile).compactPrescriptions();
+        ChangeFeed.Batch batch = lab.poll(Duration.ZERO);
+        assertTrue(batch.isRestarted(), "Replaced file should be read from the start");
+        assertEquals(List.of(1, 2), ids(batch));
+    }
+
+    @Test
+    public void test6_Poll_KeepsRestartUntilRecordsArrive() throws Exception {
+        RecordAppender.forPath(prescFile).appendRecords(prescription(1, "Dr. Smith") + prescription(2, "Dr. Smith"));
+        ChangeFeed.Subscription lab = feed.subscribe("lab");
+        assertEquals(List.of(1, 2), ids(lab.poll(Duration.ZERO)));
+
+        // The file is cut back to nothing, then written again
+        RecordAppender.forPath(prescFile).truncate(0);
+        assertTrue(lab.poll(Duration.ZERO).isEmpty());
+        RecordAppender.forPath(prescFile).appendRecords(prescription(3, "Dr. Jones"));
+
+        ChangeFeed.Batch batch = lab.poll(Duration.ZERO);
+        assertEquals(List.of(3), ids(batch));
+        assertTrue(batch.isRestarted(), "First records after the restart should still carry it");
+        RecordAppender.forPath(prescFile).appendRecords(prescription(4, "Dr. Jones"));
+        assertFalse(lab.poll(Duration.ZERO).isRestarted());
+    }
+}
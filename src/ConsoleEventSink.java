@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.util.List;
+
+// Prints events the way the command line has always shown them. System.out and System.err
+// are looked up on every call, so redirected streams are honoured.
+public class ConsoleEventSink implements PrescriptionEventSink {
+    @Override
+    public void prescriptionRejected(int prescID, List<String> errors) {
+        printErrors("Please address the following issues before proceeding:", errors);
+    }
+
+    @Override
+    public void prescriptionAdded(int prescID) {
+        System.out.println("Prescription successfully added!\n");
+    }
+
+    @Override
+    public void prescriptionWriteFailed(int prescID, IOException error) {
+        System.err.println("An error occurred while saving the prescription: " + error.getMessage());
+    }
+
+    @Override
+    public void remarkRejected(int prescID, List<String> errors) {
+        printErrors("Please correct the following issues with your remark:", errors);
+    }
+
+    @Override
+    public void remarkAdded(int prescID) {
+        System.out.println("Remark successfully added!\n");
+    }
+
+    @Override
+    public void remarkWriteFailed(int prescID, IOException error) {
+        System.err.println("An error occurred while saving the remark: " + error.getMessage());
+    }
+
+    @Override
+    public void writeFailed(String fileName, int records, IOException error) {
+        System.err.println("An error occurred while saving to " + fileName + ": " + error.getMessage());
+    }
+
+    private static void printErrors(String heading, List<String> errors) {
+        // One print call, so the heading and its errors stay together when threads print at once
+        StringBuilder out = new StringBuilder(heading);
+        for (String error : errors) {
+            out.append(System.lineSeparator()).append("- ").append(error);
+        }
+        System.out.println(out);
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal JSON support for flat objects of strings, numbers, booleans and nulls, which is all the
+// prescription and remark feeds use. Nested objects and arrays are rejected when parsing;
+// object() can render lists for response bodies.
+public final class FlatJson {
+    private FlatJson() {
+    }
+
+    // Parses one object; values come back as their text (numbers unparsed, null as null)
+    public static Map<String, String> parseObject(String json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = {skipWhitespace(json, 0)};
+        expect(json, pos, '{');
+        pos[0] = skipWhitespace(json, pos[0]);
+        if (peek(json, pos[0]) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                pos[0] = skipWhitespace(json, pos[0]);
+                String key = readString(json, pos);
+                pos[0] = skipWhitespace(json, pos[0]);
+                expect(json, pos, ':');
+                pos[0] = skipWhitespace(json, pos[0]);
+                fields.put(key, readValue(json, pos));
+                pos[0] = skipWhitespace(json, pos[0]);
+                char c = peek(json, pos[0]);
+                pos[0]++;
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("Expected ',' or '}' at position " + (pos[0] - 1) + ".");
+                }
+            }
+        }
+        if (skipWhitespace(json, pos[0]) != json.length()) {
+            throw new IllegalArgumentException("Unexpected content after JSON object.");
+        }
+        return fields;
+    }
+
+    // Renders {"ok": ok, "errors": [...]} style responses; keys and string values are escaped
+    public static String object(Map<String, Object> fields) {
+        StringBuilder out = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendString(out, field.getKey());
+            out.append(':');
+            appendValue(out, field.getValue());
+        }
+        return out.append('}').toString();
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof List) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : (List<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendValue(out, item);
+            }
+            out.append(']');
+        } else {
+            appendString(out, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String readValue(String json, int[] pos) {
+        char c = peek(json, pos[0]);
+        if (c == '"') {
+            return readString(json, pos);
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("Nested values are not supported at position " + pos[0] + ".");
+        }
+        int start = pos[0];
+        while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) {
+            pos[0]++;
+        }
+        String literal = json.substring(start, pos[0]);
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("Missing value at position " + start + ".");
+        }
+        return literal.equals("null") ? null : literal;
+    }
+
+    private static String readString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (pos[0] >= json.length()) {
+                throw new IllegalArgumentException("Unterminated string.");
+            }
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (pos[0] >= json.length()) {
+                throw new IllegalArgumentException("Unterminated escape sequence.");
+            }
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (pos[0] + 4 > json.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape.");
+                    }
+                    value.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default:
+                    value.append(escaped); // \" \\ \/
+            }
+        }
+    }
+
+    private static void expect(String json, int[] pos, char expected) {
+        if (peek(json, pos[0]) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at position " + pos[0] + ".");
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String json, int pos) {
+        if (pos >= json.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON.");
+        }
+        return json.charAt(pos);
+    }
+
+    private static int skipWhitespace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
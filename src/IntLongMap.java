@@ -0,0 +1,143 @@
+import java.util.Arrays;
+
+// Open-addressing hash map from int keys to non-negative long values, without boxing.
+// Used for prescription ID -> file offset indexes. Not thread-safe; callers guard it.
+public class IntLongMap {
+    public static final long MISSING = -1L;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private long[] values; // MISSING marks an empty slot
+    private int size;
+    private int resizeAt;
+
+    public IntLongMap() {
+        this(16);
+    }
+
+    public IntLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the value for the key, or MISSING
+    public long get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long value = values[slot];
+            if (value == MISSING) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return value;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    // Stores the value (which must be >= 0) and returns the previous one, or MISSING
+    public long put(int key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative.");
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long previous = values[slot];
+            if (previous == MISSING) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return previous;
+            }
+        }
+    }
+
+    // Removes the key and returns its value, or MISSING if it was not present
+    public long remove(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        long previous = values[slot];
+        if (previous == MISSING) {
+            return MISSING;
+        }
+
+        // Backward-shift deletion: pull later entries of the probe chain into the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+            int ideal = mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = MISSING;
+        size--;
+        return previous;
+    }
+
+    // Visits every entry in unspecified order
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != MISSING) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    public interface Visitor {
+        void visit(int key, long value);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, MISSING);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != MISSING) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    // Spreads sequential IDs across the table (murmur3 finalizer)
+    private static int mix(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
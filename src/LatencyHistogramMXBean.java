@@ -0,0 +1,16 @@
+// JMX view of one LatencyHistogram; all values are in nanoseconds
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanNanos();
+
+    long getMaxNanos();
+
+    long getP50Nanos();
+
+    long getP90Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+}
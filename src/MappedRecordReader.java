@@ -0,0 +1,387 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streaming reader for presc.txt / remark.txt that works on the memory-mapped file bytes.
+// Record blocks are located by walking the mapping for blank lines, and a Cursor only decodes
+// the fields a caller actually asks for, so a scan that looks at one field allocates nothing
+// for the others. Large files are mapped in windows, remapped at record boundaries.
+public class MappedRecordReader implements Closeable {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final long MIN_WINDOW_REMAINING = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private MappedRecordReader(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    public static MappedRecordReader open(String fileName) throws IOException {
+        return open(Paths.get(fileName));
+    }
+
+    public static MappedRecordReader open(Path path) throws IOException {
+        return new MappedRecordReader(path, FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // A cursor over the records that exist when it is created, starting at the first record
+    public Cursor cursor() throws IOException {
+        return cursor(0);
+    }
+
+    // A cursor starting at the given byte offset, which must be a record boundary
+    public Cursor cursor(long startOffset) throws IOException {
+        return cursor(startOffset, channel.size());
+    }
+
+    // A cursor over [startOffset, endOffset); endOffset must also be a record boundary, such as a
+    // file size taken from RecordAppender.size()
+    public Cursor cursor(long startOffset, long endOffset) throws IOException {
+        return new Cursor(startOffset, Math.min(endOffset, channel.size()));
+    }
+
+    // Lazily materialized prescriptions, in file order
+    public Stream<Prescription> prescriptions() throws IOException {
+        return stream(Cursor::toPrescription);
+    }
+
+    // Lazily materialized remarks, in file order
+    public Stream<Remark> remarks() throws IOException {
+        return stream(Cursor::toRemark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private <T> Stream<T> stream(Function<Cursor, T> materializer) throws IOException {
+        Cursor cursor = cursor();
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                action.accept(materializer.apply(cursor));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    // Positioned on one record block at a time. Field accessors read straight from the mapping;
+    // values are only valid until the next call to next().
+    public final class Cursor {
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowEnd;
+
+        private long nextOffset;
+        private long start = -1;
+        private long end = -1;
+
+        private Cursor(long startOffset, long fileSize) {
+            this.nextOffset = startOffset;
+            this.fileSize = fileSize;
+        }
+
+        // Advances to the next record block; false once the end of the file is reached
+        public boolean next() throws IOException {
+            long pos = nextOffset;
+
+            // Skip the blank lines separating blocks
+            while (pos < fileSize) {
+                ensureMapped(pos);
+                byte b = byteAt(pos);
+                if (b != '\n' && b != '\r') {
+                    break;
+                }
+                pos++;
+            }
+            if (pos >= fileSize) {
+                start = end = -1;
+                nextOffset = fileSize;
+                return false;
+            }
+
+            ensureMapped(pos);
+            long blockEnd = findBlockEnd(pos);
+            if (blockEnd < 0) {
+                // Block runs past the current window; remap so it starts at this record
+                map(pos);
+                blockEnd = findBlockEnd(pos);
+                if (blockEnd < 0) {
+                    throw new IOException("Record at offset " + pos + " in " + path + " is too large to map.");
+                }
+            }
+
+            start = pos;
+            end = blockEnd;
+            nextOffset = blockEnd;
+            return true;
+        }
+
+        // Byte offset of the current record in the file
+        public long offset() {
+            return start;
+        }
+
+        // Byte offset just past the current record; a resumable position for a later cursor
+        public long nextOffset() {
+            return nextOffset;
+        }
+
+        public int length() {
+            return (int) (end - start);
+        }
+
+        // Copies the current block: its lines up to the blank line that ends it
+        public byte[] bytes() {
+            byte[] bytes = new byte[length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteAt(start + i);
+            }
+            return bytes;
+        }
+
+        public boolean has(RecordField field) {
+            return valueStart(field) >= 0;
+        }
+
+        // Decodes only this field's value, or returns null when the record does not have it
+        public String text(RecordField field) {
+            long valueStart = valueStart(field);
+            if (valueStart < 0) {
+                return null;
+            }
+            long valueEnd = valueEnd(valueStart);
+            byte[] bytes = new byte[(int) (valueEnd - valueStart)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteAt(valueStart + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Copies the field's raw UTF-8 value into the target buffer at its position, without
+        // decoding it; returns the number of bytes copied, or -1 when the record lacks the field
+        public int copyValue(RecordField field, ByteBuffer target) {
+            long valueStart = valueStart(field);
+            if (valueStart < 0) {
+                return -1;
+            }
+            int length = (int) (valueEnd(valueStart) - valueStart);
+            for (int i = 0; i < length; i++) {
+                target.put(byteAt(valueStart + i));
+            }
+            return length;
+        }
+
+        // Parses an integer field directly from the mapped bytes without allocating
+        public int intValue(RecordField field) {
+            long valueStart = valueStart(field);
+            if (valueStart < 0) {
+                throw new IllegalStateException("Record at offset " + start + " has no " + field.getLabel() + ".");
+            }
+            long valueEnd = valueEnd(valueStart);
+            long pos = valueStart;
+            boolean negative = pos < valueEnd && byteAt(pos) == '-';
+            if (negative) {
+                pos++;
+            }
+            if (pos >= valueEnd) {
+                throw new NumberFormatException("Empty " + field.getLabel() + " at offset " + start + ".");
+            }
+            int value = 0;
+            for (; pos < valueEnd; pos++) {
+                byte b = byteAt(pos);
+                if (b < '0' || b > '9') {
+                    throw new NumberFormatException("Invalid " + field.getLabel() + " at offset " + start + ".");
+                }
+                value = value * 10 + (b - '0');
+            }
+            return negative ? -value : value;
+        }
+
+        public float floatValue(RecordField field) {
+            String value = text(field);
+            if (value == null) {
+                throw new IllegalStateException("Record at offset " + start + " has no " + field.getLabel() + ".");
+            }
+            return Float.parseFloat(value);
+        }
+
+        // Parses a dd/MM/yy field straight to an epoch day; NO_EPOCH_DAY when it is missing,
+        // "N/A" or malformed
+        public int epochDayValue(RecordField field) {
+            long valueStart = valueStart(field);
+            if (valueStart < 0 || valueEnd(valueStart) - valueStart != 8
+                    || byteAt(valueStart + 2) != '/' || byteAt(valueStart + 5) != '/') {
+                return Prescription.NO_EPOCH_DAY;
+            }
+            int day = twoDigits(valueStart);
+            int month = twoDigits(valueStart + 3);
+            int year = twoDigits(valueStart + 6);
+            if (day < 0 || month < 0 || year < 0) {
+                return Prescription.NO_EPOCH_DAY;
+            }
+            return Prescription.epochDayOf(day, month, year);
+        }
+
+        // True when the field's value equals the given ASCII text, compared in place
+        public boolean textEquals(RecordField field, String expected) {
+            long valueStart = valueStart(field);
+            if (valueStart < 0) {
+                return false;
+            }
+            long valueEnd = valueEnd(valueStart);
+            if (valueEnd - valueStart != expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < expected.length(); i++) {
+                if (byteAt(valueStart + i) != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Prescription toPrescription() {
+            Prescription prescription = new Prescription();
+            prescription.setPrescID(intValue(RecordField.PRESCRIPTION_ID));
+            prescription.setFirstName(text(RecordField.FIRST_NAME));
+            prescription.setLastName(text(RecordField.LAST_NAME));
+            prescription.setAddress(text(RecordField.ADDRESS));
+            prescription.setSphere(floatValue(RecordField.SPHERE));
+            prescription.setCylinder(floatValue(RecordField.CYLINDER));
+            prescription.setAxis(floatValue(RecordField.AXIS));
+            String date = text(RecordField.EXAMINATION_DATE);
+            prescription.setExaminationDate(date != null ? Prescription.parseExaminationDate(date) : null);
+            prescription.setOptometrist(Prescription.OPTOMETRISTS.intern(text(RecordField.OPTOMETRIST)));
+            return prescription;
+        }
+
+        public Remark toRemark() {
+            return new Remark(intValue(RecordField.PRESCRIPTION_ID),
+                    Remark.REMARK_TYPES.intern(text(RecordField.REMARK_TYPE)),
+                    text(RecordField.REMARK));
+        }
+
+        // Finds the end of the block starting at pos: the start of its terminating blank line
+        // (or the end of the file). Returns -1 if the window ends first.
+        private long findBlockEnd(long pos) {
+            for (long p = pos; p < windowEnd; p++) {
+                if (byteAt(p) == '\n') {
+                    long next = p + 1;
+                    if (next >= fileSize) {
+                        return fileSize;
+                    }
+                    if (next >= windowEnd) {
+                        return -1;
+                    }
+                    if (isBlankLineAt(next)) {
+                        return next;
+                    }
+                }
+            }
+            return windowEnd >= fileSize ? fileSize : -1;
+        }
+
+        private boolean isBlankLineAt(long pos) {
+            byte b = byteAt(pos);
+            return b == '\n' || (b == '\r' && pos + 1 < windowEnd && byteAt(pos + 1) == '\n');
+        }
+
+        // Start of the value for the field within the current block, or -1
+        private long valueStart(RecordField field) {
+            if (start < 0) {
+                throw new IllegalStateException("Cursor is not positioned on a record.");
+            }
+            byte[] prefix = field.prefix();
+            long lineStart = start;
+            while (lineStart < end) {
+                if (lineStart + prefix.length <= end && matches(lineStart, prefix)) {
+                    return lineStart + prefix.length;
+                }
+                long p = lineStart;
+                while (p < end && byteAt(p) != '\n') {
+                    p++;
+                }
+                lineStart = p + 1;
+            }
+            return -1;
+        }
+
+        private long valueEnd(long valueStart) {
+            long p = valueStart;
+            while (p < end && byteAt(p) != '\n') {
+                p++;
+            }
+            if (p > valueStart && byteAt(p - 1) == '\r') {
+                p--;
+            }
+            return p;
+        }
+
+        private int twoDigits(long pos) {
+            byte high = byteAt(pos);
+            byte low = byteAt(pos + 1);
+            if (high < '0' || high > '9' || low < '0' || low > '9') {
+                return -1;
+            }
+            return (high - '0') * 10 + (low - '0');
+        }
+
+        private boolean matches(long pos, byte[] prefix) {
+            for (int i = 0; i < prefix.length; i++) {
+                if (byteAt(pos + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private byte byteAt(long pos) {
+            return window.get((int) (pos - windowStart));
+        }
+
+        private void ensureMapped(long pos) throws IOException {
+            if (window == null || pos < windowStart
+                    || (windowEnd < fileSize && windowEnd - pos < MIN_WINDOW_REMAINING) || pos >= windowEnd) {
+                map(pos);
+            }
+        }
+
+        private void map(long pos) throws IOException {
+            long size = Math.min(WINDOW_SIZE, fileSize - pos);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            windowStart = pos;
+            windowEnd = pos + size;
+        }
+    }
+}
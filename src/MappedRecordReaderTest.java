@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedRecordReaderTest {
+
+    private Path prescFile;
+    private Path remarkFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        prescFile = Files.createTempFile("presc-mapped", ".txt");
+        remarkFile = Files.createTempFile("remark-mapped", ".txt");
+
+        StringBuilder prescriptions = new StringBuilder();
+        for (int id = 1; id <= 100; id++) {
+            prescriptions.append(newPrescription(id).formatPrescription());
+        }
+        Files.write(prescFile, prescriptions.toString().getBytes(StandardCharsets.UTF_8));
+
+        Prescription remark = newPrescription(7);
+        remark.setRemarkType("client");
+        remark.setRemarkText("This is a valid remark from the client.");
+        Files.write(remarkFile, remark.formatRemark().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(prescFile);
+        Files.deleteIfExists(remarkFile);
+    }
+
+    @Test
+    public void test1_Prescriptions_StreamsEveryRecordInOrder() throws Exception {
+        try (MappedRecordReader reader = MappedRecordReader.open(prescFile)) {
+            List<Prescription> all = reader.prescriptions().collect(Collectors.toList());
+            assertEquals(100, all.size(), "Every record should be streamed");
+            assertEquals(1, all.get(0).getPrescID());
+            assertEquals(100, all.get(99).getPrescID());
+            assertEquals("Patient42", all.get(41).getFirstName());
+            assertEquals(-5.0f, all.get(41).getSphere());
+            assertNotNull(all.get(41).getExaminationDate(), "Examination date should be parsed");
+        }
+    }
+
+    @Test
+    public void test2_Cursor_ReadsSingleFieldsAndResumes() throws Exception {
+        try (MappedRecordReader reader = MappedRecordReader.open(prescFile)) {
+            MappedRecordReader.Cursor cursor = reader.cursor();
+            long resumeAt = -1;
+            int count = 0;
+            while (cursor.next()) {
+                count++;
+                assertEquals(count, cursor.intValue(RecordField.PRESCRIPTION_ID));
+                assertTrue(cursor.textEquals(RecordField.OPTOMETRIST, "doctor Raghav"));
+                assertNull(cursor.text(RecordField.REMARK), "Prescription blocks have no remark field");
+                if (count == 50) {
+                    resumeAt = cursor.nextOffset();
+                }
+            }
+            assertEquals(100, count);
+
+            // A cursor started from a saved offset continues with the next record
+            MappedRecordReader.Cursor resumed = reader.cursor(resumeAt);
+            assertTrue(resumed.next());
+            assertEquals(51, resumed.intValue(RecordField.PRESCRIPTION_ID));
+        }
+    }
+
+    @Test
+    public void test3_Remarks_StreamsRemarkBlocks() throws Exception {
+        try (MappedRecordReader reader = MappedRecordReader.open(remarkFile)) {
+            List<Remark> remarks = reader.remarks().collect(Collectors.toList());
+            assertEquals(1, remarks.size());
+            assertEquals(7, remarks.get(0).getPrescID());
+            assertEquals("Client", remarks.get(0).getRemarkType());
+            assertEquals("This is a valid remark from the client.", remarks.get(0).getRemarkText());
+        }
+    }
+
+    private static Prescription newPrescription(int id) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Patient" + id);
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+        return prescription;
+    }
+}
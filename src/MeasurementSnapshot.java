@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+// Read-only, column-oriented copy of the lens measurements in presc.txt for reporting.
+// One pass over the mapped file fills primitive columns (sphere, cylinder, axis, examination
+// month) with one row per prescription ID, the latest record winning as in
+// PrescriptionRepository. Optometrists are dictionary-encoded: the column holds an int code
+// into a small table of names. Aggregations split the rows into chunks and run them in
+// parallel on a fork-join pool, then merge the per-chunk results.
+public class MeasurementSnapshot {
+    private static final int CHUNK_ROWS = 64 * 1024;
+    private static final int NO_MONTH = -1;
+
+    public enum Measure {
+        SPHERE,
+        CYLINDER,
+        AXIS
+    }
+
+    private final ForkJoinPool pool;
+    private final int rows;
+    private final float[] sphere;
+    private final float[] cylinder;
+    private final float[] axis;
+    private final int[] optometrist;
+    private final int[] month; // year * 12 + month - 1, or NO_MONTH without a valid date
+    private final String[] optometrists;
+
+    private MeasurementSnapshot(ForkJoinPool pool, Builder builder) {
+        this.pool = pool;
+        this.rows = builder.rows;
+        this.sphere = Arrays.copyOf(builder.sphere, rows);
+        this.cylinder = Arrays.copyOf(builder.cylinder, rows);
+        this.axis = Arrays.copyOf(builder.axis, rows);
+        this.optometrist = Arrays.copyOf(builder.optometrist, rows);
+        this.month = Arrays.copyOf(builder.month, rows);
+        this.optometrists = builder.optometrists.values().toArray(new String[0]);
+    }
+
+    public static MeasurementSnapshot load(String fileName) throws IOException {
+        return load(Paths.get(fileName), ForkJoinPool.commonPool());
+    }
+
+    public static MeasurementSnapshot load(Path path, ForkJoinPool pool) throws IOException {
+        Builder builder = new Builder();
+        try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+            // Stop at the appender's size so a record that is still being written is left out
+            MappedRecordReader.Cursor cursor = reader.cursor(0, RecordAppender.forPath(path).size());
+            while (cursor.next()) {
+                if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    builder.add(cursor);
+                }
+            }
+        }
+        return new MeasurementSnapshot(pool, builder);
+    }
+
+    // Number of rows, i.e. distinct prescription IDs
+    public int size() {
+        return rows;
+    }
+
+    // Distinct optometrist names, in the order they were first seen
+    public List<String> getOptometrists() {
+        return List.of(optometrists);
+    }
+
+    public Stats stats(Measure measure) {
+        float[] column = column(measure);
+        return compute(chunk -> {
+            Stats stats = new Stats();
+            for (int row = chunkStart(chunk); row < chunkEnd(chunk); row++) {
+                stats.add(column[row]);
+            }
+            return stats;
+        }, Stats::merge);
+    }
+
+    // Stats of the measure per optometrist, sorted by name
+    public Map<String, Stats> statsByOptometrist(Measure measure) {
+        Stats[] groups = groupStats(measure, optometrist, optometrists.length);
+        Map<String, Stats> result = new TreeMap<>();
+        for (int code = 0; code < groups.length; code++) {
+            if (groups[code].getCount() > 0) {
+                result.put(optometrists[code], groups[code]);
+            }
+        }
+        return result;
+    }
+
+    // Stats of the measure per examination month, in month order; rows without a valid
+    // examination date are left out
+    public Map<YearMonth, Stats> statsByMonth(Measure measure) {
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int row = 0; row < rows; row++) {
+            if (month[row] != NO_MONTH) {
+                first = Math.min(first, month[row]);
+                last = Math.max(last, month[row]);
+            }
+        }
+        Map<YearMonth, Stats> result = new LinkedHashMap<>();
+        if (first > last) {
+            return result;
+        }
+        // Shift the months to dense group numbers starting at 0
+        int[] groupOf = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            groupOf[row] = month[row] == NO_MONTH ? -1 : month[row] - first;
+        }
+        Stats[] groups = groupStats(measure, groupOf, last - first + 1);
+        for (int group = 0; group < groups.length; group++) {
+            if (groups[group].getCount() > 0) {
+                int value = first + group;
+                result.put(YearMonth.of(value / 12, value % 12 + 1), groups[group]);
+            }
+        }
+        return result;
+    }
+
+    // Counts of the measure in equal-width buckets over [from, to); values outside the range are
+    // counted in the first or last bucket
+    public long[] histogram(Measure measure, float from, float to, int buckets) {
+        if (buckets < 1 || !(to > from)) {
+            throw new IllegalArgumentException("A histogram needs at least one bucket and from < to.");
+        }
+        float[] column = column(measure);
+        float width = (to - from) / buckets;
+        return compute(chunk -> {
+            long[] counts = new long[buckets];
+            for (int row = chunkStart(chunk); row < chunkEnd(chunk); row++) {
+                int bucket = (int) Math.floor((column[row] - from) / width);
+                counts[Math.max(0, Math.min(buckets - 1, bucket))]++;
+            }
+            return counts;
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        });
+    }
+
+    // Per-group stats, where groupOf[row] is the row's group in [0, groupCount) or -1 to skip it
+    private Stats[] groupStats(Measure measure, int[] groupOf, int groupCount) {
+        float[] column = column(measure);
+        return compute(chunk -> {
+            Stats[] groups = newStats(groupCount);
+            for (int row = chunkStart(chunk); row < chunkEnd(chunk); row++) {
+                int group = groupOf[row];
+                if (group >= 0) {
+                    groups[group].add(column[row]);
+                }
+            }
+            return groups;
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i].merge(b[i]);
+            }
+            return a;
+        });
+    }
+
+    // Runs the task for every chunk on the pool and folds the results together
+    private <T> T compute(IntFunction<T> task, BinaryOperator<T> merge) {
+        int chunks = Math.max(1, (rows + CHUNK_ROWS - 1) / CHUNK_ROWS);
+        try {
+            return pool.submit(() -> IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(task)
+                    .reduce(merge)
+                    .orElseThrow()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Aggregation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Aggregation failed unexpectedly.", e.getCause());
+        }
+    }
+
+    private int chunkStart(int chunk) {
+        return chunk * CHUNK_ROWS;
+    }
+
+    private int chunkEnd(int chunk) {
+        return Math.min(rows, (chunk + 1) * CHUNK_ROWS);
+    }
+
+    private float[] column(Measure measure) {
+        switch (measure) {
+            case SPHERE:
+                return sphere;
+            case CYLINDER:
+                return cylinder;
+            default:
+                return axis;
+        }
+    }
+
+    private static Stats[] newStats(int count) {
+        Stats[] stats = new Stats[count];
+        for (int i = 0; i < count; i++) {
+            stats[i] = new Stats();
+        }
+        return stats;
+    }
+
+    // Count, min, max and mean of one measure over a set of rows
+    public static class Stats {
+        private long count;
+        private float min = Float.POSITIVE_INFINITY;
+        private float max = Float.NEGATIVE_INFINITY;
+        private double sum;
+
+        private void add(float value) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        private Stats merge(Stats other) {
+            count += other.count;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // NaN when there are no rows
+        public float getMin() {
+            return count == 0 ? Float.NaN : min;
+        }
+
+        public float getMax() {
+            return count == 0 ? Float.NaN : max;
+        }
+
+        public double getMean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d min=%.2f max=%.2f mean=%.3f", count, getMin(), getMax(), getMean());
+        }
+    }
+
+    // Growable columns filled during the load; an ID seen again overwrites its row
+    private static final class Builder {
+        private final IntLongMap rowOf = new IntLongMap(1024);
+        private final StringDictionary optometrists = new StringDictionary();
+        private int rows;
+        private float[] sphere = new float[1024];
+        private float[] cylinder = new float[1024];
+        private float[] axis = new float[1024];
+        private int[] optometrist = new int[1024];
+        private int[] month = new int[1024];
+
+        private void add(MappedRecordReader.Cursor cursor) {
+            int prescID = cursor.intValue(RecordField.PRESCRIPTION_ID);
+            long existing = rowOf.get(prescID);
+            int row;
+            if (existing == IntLongMap.MISSING) {
+                row = rows++;
+                rowOf.put(prescID, row);
+                if (row == sphere.length) {
+                    grow(row * 2);
+                }
+            } else {
+                row = (int) existing;
+            }
+            sphere[row] = cursor.floatValue(RecordField.SPHERE);
+            cylinder[row] = cursor.floatValue(RecordField.CYLINDER);
+            axis[row] = cursor.floatValue(RecordField.AXIS);
+            String name = cursor.text(RecordField.OPTOMETRIST);
+            optometrist[row] = optometrists.encode(name == null ? "" : name);
+            int epochDay = cursor.epochDayValue(RecordField.EXAMINATION_DATE);
+            if (epochDay == Prescription.NO_EPOCH_DAY) {
+                month[row] = NO_MONTH;
+            } else {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                month[row] = date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+        }
+
+        private void grow(int capacity) {
+            sphere = Arrays.copyOf(sphere, capacity);
+            cylinder = Arrays.copyOf(cylinder, capacity);
+            axis = Arrays.copyOf(axis, capacity);
+            optometrist = Arrays.copyOf(optometrist, capacity);
+            month = Arrays.copyOf(month, capacity);
+        }
+    }
+}
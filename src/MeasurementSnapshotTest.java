@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeasurementSnapshotTest {
+
+    private Path file;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("presc-snapshot", ".txt");
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void test1_Stats_LatestRecordPerIdWins() throws Exception {
+        write(newPrescription(1, -2.0f, "Dr. Smith", LocalDate.of(2024, 3, 1))
+                + newPrescription(2, -4.0f, "Dr. Brown", LocalDate.of(2024, 3, 20))
+                + newPrescription(1, -6.0f, "Dr. Smith", LocalDate.of(2024, 4, 2)));
+        MeasurementSnapshot snapshot = MeasurementSnapshot.load(file, pool);
+
+        assertEquals(2, snapshot.size(), "Duplicate ID should keep one row");
+        assertEquals(List.of("Dr. Smith", "Dr. Brown"), snapshot.getOptometrists());
+        MeasurementSnapshot.Stats sphere = snapshot.stats(MeasurementSnapshot.Measure.SPHERE);
+        assertEquals(2, sphere.getCount());
+        assertEquals(-6.0f, sphere.getMin());
+        assertEquals(-4.0f, sphere.getMax());
+        assertEquals(-5.0, sphere.getMean(), 1e-9);
+    }
+
+    @Test
+    public void test2_GroupBy_OptometristAndMonth() throws Exception {
+        write(newPrescription(1, -1.0f, "Dr. Smith", LocalDate.of(2024, 3, 1))
+                + newPrescription(2, -3.0f, "Dr. Smith", LocalDate.of(2024, 5, 31))
+                + newPrescription(3, -8.0f, "Dr. Brown", LocalDate.of(2024, 3, 15)));
+        MeasurementSnapshot snapshot = MeasurementSnapshot.load(file, pool);
+
+        Map<String, MeasurementSnapshot.Stats> byOptometrist = snapshot.statsByOptometrist(MeasurementSnapshot.Measure.SPHERE);
+        assertEquals(List.of("Dr. Brown", "Dr. Smith"), List.copyOf(byOptometrist.keySet()));
+        assertEquals(-2.0, byOptometrist.get("Dr. Smith").getMean(), 1e-9);
+
+        Map<YearMonth, MeasurementSnapshot.Stats> byMonth = snapshot.statsByMonth(MeasurementSnapshot.Measure.SPHERE);
+        assertEquals(List.of(YearMonth.of(2024, 3), YearMonth.of(2024, 5)), List.copyOf(byMonth.keySet()),
+                "Months without records should be left out");
+        assertEquals(2, byMonth.get(YearMonth.of(2024, 3)).getCount());
+        assertEquals(-8.0f, byMonth.get(YearMonth.of(2024, 3)).getMin());
+    }
+
+    @Test
+    public void test3_Aggregations_MatchSerialResultsAcrossChunks() throws Exception {
+        StringBuilder records = new StringBuilder();
+        int count = 150_000; // Spans several chunks
+        double sum = 0;
+        for (int id = 1; id <= count; id++) {
+            float sphere = -(id % 40) / 2.0f;
+            sum += sphere;
+            records.append(newPrescription(id, sphere, id % 2 == 0 ? "Dr. Smith" : "Dr. Brown", LocalDate.of(2024, 1, 1)));
+        }
+        write(records.toString());
+        MeasurementSnapshot snapshot = MeasurementSnapshot.load(file, pool);
+
+        MeasurementSnapshot.Stats stats = snapshot.stats(MeasurementSnapshot.Measure.SPHERE);
+        assertEquals(count, stats.getCount());
+        assertEquals(sum / count, stats.getMean(), 1e-6);
+        assertEquals(-19.5f, stats.getMin());
+        assertEquals(0.0f, stats.getMax());
+
+        long[] histogram = snapshot.histogram(MeasurementSnapshot.Measure.SPHERE, -20.0f, 0.0f, 4);
+        // 40 distinct values, 3,750 rows each; 0.0 is past the range and lands in the last bucket
+        assertArrayEquals(new long[]{33_750, 37_500, 37_500, 41_250}, histogram);
+    }
+
+    @Test
+    public void test4_Histogram_InvalidArgumentsThrowException() throws Exception {
+        write(newPrescription(1, -1.0f, "Dr. Smith", LocalDate.of(2024, 3, 1)));
+        MeasurementSnapshot snapshot = MeasurementSnapshot.load(file, pool);
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.histogram(MeasurementSnapshot.Measure.AXIS, 10.0f, 10.0f, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.histogram(MeasurementSnapshot.Measure.AXIS, 0.0f, 180.0f, 0));
+    }
+
+    private void write(String records) throws Exception {
+        Files.write(file, records.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String newPrescription(int id, float sphere, String optometrist, LocalDate examined) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(sphere);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(Date.from(examined.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        prescription.setOptometrist(optometrist);
+        return prescription.formatPrescription();
+    }
+}
@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Prescriptions packed into direct (off-heap) ByteBuffer slabs, for loading a full patient
+// history without millions of heap objects for the collector to trace. Each record is laid out as
+//   int prescID | float sphere | float cylinder | float axis | int epochDay | int optometrist code
+//   | short firstName length | short lastName length | short address length | the three in UTF-8
+// Optometrists are dictionary-encoded, since a handful of names repeat across every record. The
+// heap holds only the slab list, the ID -> location index (an IntLongMap of primitives) and the
+// optometrist names.
+//
+// Records are read through a View: a reusable flyweight positioned on one record that decodes
+// fields on demand, so iterating the store allocates nothing per record. A newer record for an
+// ID takes over its index entry; the older bytes stay in the slab until the store is rebuilt.
+// Reads are safe from any number of threads once loading has finished; add() is not thread-safe.
+public class OffHeapPrescriptionStore {
+    private static final int SLAB_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_TEXT_BYTES = 0xFFFF;
+
+    private static final int ID = 0;
+    private static final int SPHERE = 4;
+    private static final int CYLINDER = 8;
+    private static final int AXIS = 12;
+    private static final int EPOCH_DAY = 16;
+    private static final int OPTOMETRIST = 20;
+    private static final int FIRST_NAME_LENGTH = 24;
+    private static final int LAST_NAME_LENGTH = 26;
+    private static final int ADDRESS_LENGTH = 28;
+    private static final int HEADER_SIZE = 30;
+    private static final int MAX_RECORD_SIZE = HEADER_SIZE + 3 * MAX_TEXT_BYTES;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final IntLongMap index = new IntLongMap(1024); // ID -> slab << 32 | offset
+    private final StringDictionary optometrists = new StringDictionary();
+    private ByteBuffer current;
+    private int records;
+
+    public static OffHeapPrescriptionStore load(String fileName) throws IOException {
+        return load(Paths.get(fileName));
+    }
+
+    // Loads every prescription in the file; field values are copied straight from the mapped file
+    // into the slab, without decoding them to Strings
+    public static OffHeapPrescriptionStore load(Path path) throws IOException {
+        OffHeapPrescriptionStore store = new OffHeapPrescriptionStore();
+        try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+            MappedRecordReader.Cursor cursor = reader.cursor(0, RecordAppender.forPath(path).size());
+            while (cursor.next()) {
+                if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    store.add(cursor);
+                }
+            }
+        }
+        return store;
+    }
+
+    public void add(Prescription prescription) {
+        ByteBuffer slab = slabFor();
+        int start = slab.position();
+        writeHeader(slab, prescription.getPrescID(), prescription.getSphere(), prescription.getCylinder(),
+                prescription.getAxis(), prescription.examinationEpochDay(), prescription.getOptometrist());
+        slab.position(start + HEADER_SIZE);
+        try {
+            slab.putShort(start + FIRST_NAME_LENGTH, putText(slab, prescription.getFirstName()));
+            slab.putShort(start + LAST_NAME_LENGTH, putText(slab, prescription.getLastName()));
+            slab.putShort(start + ADDRESS_LENGTH, putText(slab, prescription.getAddress()));
+        } catch (RuntimeException e) {
+            slab.position(start); // Give the space back to the next record
+            throw e;
+        }
+        commit(prescription.getPrescID(), start);
+    }
+
+    private void add(MappedRecordReader.Cursor cursor) {
+        ByteBuffer slab = slabFor();
+        int start = slab.position();
+        int prescID = cursor.intValue(RecordField.PRESCRIPTION_ID);
+        writeHeader(slab, prescID, cursor.floatValue(RecordField.SPHERE), cursor.floatValue(RecordField.CYLINDER),
+                cursor.floatValue(RecordField.AXIS), cursor.epochDayValue(RecordField.EXAMINATION_DATE),
+                cursor.text(RecordField.OPTOMETRIST));
+        slab.position(start + HEADER_SIZE);
+        try {
+            slab.putShort(start + FIRST_NAME_LENGTH, copyText(cursor, RecordField.FIRST_NAME, slab));
+            slab.putShort(start + LAST_NAME_LENGTH, copyText(cursor, RecordField.LAST_NAME, slab));
+            slab.putShort(start + ADDRESS_LENGTH, copyText(cursor, RecordField.ADDRESS, slab));
+        } catch (RuntimeException e) {
+            slab.position(start);
+            throw e;
+        }
+        commit(prescID, start);
+    }
+
+    // Number of distinct prescription IDs
+    public int size() {
+        return index.size();
+    }
+
+    // Number of records held, including those replaced by a newer record for the same ID
+    public int getRecordCount() {
+        return records;
+    }
+
+    // Off-heap bytes in use by records
+    public long getBytesUsed() {
+        long used = 0;
+        for (ByteBuffer slab : slabs) {
+            used += slab.position();
+        }
+        return used;
+    }
+
+    public boolean contains(int prescID) {
+        return index.containsKey(prescID);
+    }
+
+    // Positions the view on the latest record for the ID; false when the ID is not in the store
+    public boolean find(int prescID, View view) {
+        long location = index.get(prescID);
+        if (location == IntLongMap.MISSING) {
+            return false;
+        }
+        view.moveTo(slabs.get((int) (location >>> 32)), (int) location);
+        return true;
+    }
+
+    // Visits the latest record of every ID, in unspecified order, through one reused view; the
+    // view must not be kept after the action returns
+    public void forEach(Consumer<View> action) {
+        View view = newView();
+        index.forEach((prescID, location) -> {
+            view.moveTo(slabs.get((int) (location >>> 32)), (int) location);
+            action.accept(view);
+        });
+    }
+
+    public View newView() {
+        return new View();
+    }
+
+    private ByteBuffer slabFor() {
+        if (current == null || current.remaining() < MAX_RECORD_SIZE) {
+            current = ByteBuffer.allocateDirect(SLAB_SIZE);
+            slabs.add(current);
+        }
+        return current;
+    }
+
+    private void writeHeader(ByteBuffer slab, int prescID, float sphere, float cylinder, float axis,
+                             int epochDay, String optometrist) {
+        int start = slab.position();
+        slab.putInt(start + ID, prescID);
+        slab.putFloat(start + SPHERE, sphere);
+        slab.putFloat(start + CYLINDER, cylinder);
+        slab.putFloat(start + AXIS, axis);
+        slab.putInt(start + EPOCH_DAY, epochDay);
+        slab.putInt(start + OPTOMETRIST, optometrists.encode(optometrist == null ? "" : optometrist));
+    }
+
+    private void commit(int prescID, int start) {
+        index.put(prescID, (long) (slabs.size() - 1) << 32 | start);
+        records++;
+    }
+
+    private static short putText(ByteBuffer slab, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        checkLength(bytes.length);
+        slab.put(bytes);
+        return (short) bytes.length;
+    }
+
+    private static short copyText(MappedRecordReader.Cursor cursor, RecordField field, ByteBuffer slab) {
+        int length = Math.max(0, cursor.copyValue(field, slab));
+        checkLength(length);
+        return (short) length;
+    }
+
+    private static void checkLength(int length) {
+        if (length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Text fields are limited to " + MAX_TEXT_BYTES + " bytes.");
+        }
+    }
+
+    // Flyweight over one packed record. Numeric getters read straight from the slab; the text
+    // getters decode a String on each call, so only the fields a caller asks for are allocated.
+    public final class View {
+        private ByteBuffer slab;
+        private int start;
+
+        private View() {
+        }
+
+        private void moveTo(ByteBuffer slab, int start) {
+            this.slab = slab;
+            this.start = start;
+        }
+
+        public int getPrescID() {
+            return slab.getInt(start + ID);
+        }
+
+        public float getSphere() {
+            return slab.getFloat(start + SPHERE);
+        }
+
+        public float getCylinder() {
+            return slab.getFloat(start + CYLINDER);
+        }
+
+        public float getAxis() {
+            return slab.getFloat(start + AXIS);
+        }
+
+        // Days since 1970-01-01, or Prescription.NO_EPOCH_DAY without a valid date
+        public int getExaminationEpochDay() {
+            return slab.getInt(start + EPOCH_DAY);
+        }
+
+        public String getOptometrist() {
+            return optometrists.decode(slab.getInt(start + OPTOMETRIST));
+        }
+
+        public String getFirstName() {
+            return text(HEADER_SIZE, FIRST_NAME_LENGTH);
+        }
+
+        public String getLastName() {
+            return text(HEADER_SIZE + length(FIRST_NAME_LENGTH), LAST_NAME_LENGTH);
+        }
+
+        public String getAddress() {
+            return text(HEADER_SIZE + length(FIRST_NAME_LENGTH) + length(LAST_NAME_LENGTH), ADDRESS_LENGTH);
+        }
+
+        // True when the last name equals the ASCII text, compared in place without decoding
+        public boolean lastNameEquals(String lastName) {
+            int offset = start + HEADER_SIZE + length(FIRST_NAME_LENGTH);
+            int length = length(LAST_NAME_LENGTH);
+            if (length != lastName.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (slab.get(offset + i) != lastName.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Copies the record into a regular Prescription object
+        public Prescription toPrescription() {
+            Prescription prescription = new Prescription();
+            prescription.setPrescID(getPrescID());
+            prescription.setFirstName(getFirstName());
+            prescription.setLastName(getLastName());
+            prescription.setAddress(getAddress());
+            prescription.setSphere(getSphere());
+            prescription.setCylinder(getCylinder());
+            prescription.setAxis(getAxis());
+            prescription.setExaminationDate(Prescription.dateFromEpochDay(getExaminationEpochDay()));
+            prescription.setOptometrist(getOptometrist());
+            return prescription;
+        }
+
+        private int length(int lengthField) {
+            return Short.toUnsignedInt(slab.getShort(start + lengthField));
+        }
+
+        private String text(int offset, int lengthField) {
+            byte[] bytes = new byte[length(lengthField)];
+            slab.get(start + offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
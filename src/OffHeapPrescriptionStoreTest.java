@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapPrescriptionStoreTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("presc-offheap", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private static Prescription newPrescription(int id, String firstName, String optometrist) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName(firstName);
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.25f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(Date.from(LocalDate.of(2024, 3, 15).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        prescription.setOptometrist(optometrist);
+        return prescription;
+    }
+
+    @Test
+    public void test1_Load_FindByIdReadsPackedFields() throws Exception {
+        String records = newPrescription(1, "Alice", "Dr. Smith").formatPrescription()
+                + newPrescription(2, "Bruno", "Dr. Jones").formatPrescription()
+                + newPrescription(1, "Alicia", "Dr. Smith").formatPrescription();
+        Files.write(file, records.getBytes(StandardCharsets.UTF_8));
+
+        OffHeapPrescriptionStore store = OffHeapPrescriptionStore.load(file);
+        assertEquals(2, store.size());
+        assertEquals(3, store.getRecordCount(), "Replaced record should still be counted");
+        assertTrue(store.getBytesUsed() > 0);
+
+        OffHeapPrescriptionStore.View view = store.newView();
+        assertTrue(store.find(1, view));
+        assertEquals("Alicia", view.getFirstName(), "Latest record for the ID should win");
+        assertEquals("Johnson", view.getLastName());
+        assertEquals("123 Main Street, Springfield, IL 62704, USA", view.getAddress());
+        assertEquals(-5.25f, view.getSphere());
+        assertEquals(90.0f, view.getAxis());
+        assertEquals(LocalDate.of(2024, 3, 15).toEpochDay(), view.getExaminationEpochDay());
+        assertEquals("Dr. Smith", view.getOptometrist());
+        assertTrue(view.lastNameEquals("Johnson"));
+        assertFalse(view.lastNameEquals("Johnsen"));
+        assertFalse(store.find(42, view));
+    }
+
+    @Test
+    public void test2_Add_RoundTripsThroughView() {
+        OffHeapPrescriptionStore store = new OffHeapPrescriptionStore();
+        Prescription original = newPrescription(7, "Émile", "Dr. Jones");
+        store.add(original);
+
+        OffHeapPrescriptionStore.View view = store.newView();
+        assertTrue(store.find(7, view));
+        Prescription copy = view.toPrescription();
+        assertEquals(original.formatPrescription(), copy.formatPrescription(), "Every field should survive packing");
+    }
+
+    @Test
+    public void test3_ForEach_VisitsLatestRecordOfEveryId() {
+        OffHeapPrescriptionStore store = new OffHeapPrescriptionStore();
+        for (int id = 1; id <= 1000; id++) {
+            store.add(newPrescription(id, "Alice", id % 2 == 0 ? "Dr. Smith" : "Dr. Jones"));
+        }
+        store.add(newPrescription(5, "Alicia", "Dr. Smith"));
+
+        List<Integer> smith = new ArrayList<>();
+        store.forEach(view -> {
+            if (view.getOptometrist().equals("Dr. Smith")) {
+                smith.add(view.getPrescID());
+            }
+        });
+        assertEquals(501, smith.size());
+        assertTrue(smith.contains(5), "Replaced record should be visited in its new version");
+    }
+
+    @Test
+    public void test4_Add_OversizedTextThrowsException() {
+        OffHeapPrescriptionStore store = new OffHeapPrescriptionStore();
+        Prescription prescription = newPrescription(1, "Alice", "Dr. Smith");
+        prescription.setAddress("x".repeat(70_000));
+        assertThrows(IllegalArgumentException.class, () -> store.add(prescription));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getBytesUsed(), "A rejected record should not leave bytes behind");
+    }
+}
@@ -1,15 +1,36 @@
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 public class Prescription {
+    // Marks a missing examination date in epoch-day encoded formats
+    static final int NO_EPOCH_DAY = Integer.MIN_VALUE;
+
+    // Shared, thread-safe helpers so the write path does not build them per record
+    private static final PrescriptionValidator VALIDATOR = PrescriptionValidator.DEFAULT;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yy");
+    private static final PrescriptionMetrics METRICS = PrescriptionMetrics.global();
+    // Records read back from disk share one String per optometrist name instead of one per record
+    static final StringDictionary OPTOMETRISTS = new StringDictionary();
+
+    // Where validation failures and write outcomes are reported; silent unless main or the
+    // embedding application installs a sink
+    private static volatile PrescriptionEventSink eventSink = PrescriptionEventSink.NO_OP;
+
     private float sphere;
     private float axis;
     private float cylinder;
@@ -29,157 +50,504 @@ public class Prescription {
 
 
     public boolean addPrescription() throws IllegalArgumentException {
-        List<String> errorList = new ArrayList<>();
+        return addPrescription(null);
+    }
+
+    // Same as addPrescription(), but checks the ID against the registry first; under its REJECT
+    // policy a duplicate ID is reported as a validation error and nothing is written
+    public boolean addPrescription(PrescriptionIdRegistry registry) throws IllegalArgumentException {
+        return addPrescription(registry, Paths.get("presc.txt"));
+    }
+
+    // Same as addPrescription(PrescriptionIdRegistry), but appends to the given file instead of presc.txt
+    public boolean addPrescription(PrescriptionIdRegistry registry, Path file) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        List<String> errorList = validatePrescription();
+        boolean claimed = false;
+        if (errorList.isEmpty() && registry != null) {
+            try {
+                claimed = registry.claim(this.prescID);
+            } catch (IllegalArgumentException e) {
+                METRICS.recordRejection("duplicateId");
+                errorList.add(e.getMessage());
+            }
+        }
+        start = METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_VALIDATE, start);
+
+        // If there are validation errors, report them and throw an exception
+        if (!errorList.isEmpty()) {
+            eventSink.prescriptionRejected(this.prescID, errorList);
+            throw new IllegalArgumentException(String.join("\n", errorList));
+        }
+
+        // If all conditions are valid, write the data to the file
+        // The whole block goes out in one locked write, so concurrent callers cannot interleave
+        try {
+            String record = formatPrescription();
+            start = METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_SERIALIZE, start);
+            RecordAppender.forPath(file).appendRecords(record);
+            METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_WRITE, start);
+
+            eventSink.prescriptionAdded(this.prescID);
+        } catch (IOException e) {
+            if (claimed) {
+                registry.release(this.prescID);
+            }
+            eventSink.prescriptionWriteFailed(this.prescID, e);
+            return false;
+        }
 
-        // Validate First Name and Last Name
-        if (this.firstName == null || this.firstName.trim().isEmpty()) {
-            errorList.add("Please enter the first name.");
-        } else if (this.firstName.length() < 4 || this.firstName.length() > 15) {
-            errorList.add("First name must be between 4 and 15 characters long.");
+        return true; // If all went well
+    }
+
+    // Validates every prescription in the batch and appends all accepted records to presc.txt
+    // with a single open and a single write. Rejected records are reported per batch position
+    // and do not abort the rest of the batch.
+    public static PrescriptionBatchResult addPrescriptions(Collection<Prescription> prescriptions) {
+        return addPrescriptions(prescriptions, null);
+    }
+
+    // Batch variant of addPrescription(PrescriptionIdRegistry); duplicates inside the batch are
+    // caught too, since each accepted record claims its ID before the next one is checked
+    public static PrescriptionBatchResult addPrescriptions(Collection<Prescription> prescriptions,
+                                                           PrescriptionIdRegistry registry) {
+        PrescriptionEventSink sink = eventSink;
+        PrescriptionBatchResult result = new PrescriptionBatchResult();
+        StringBuilder records = new StringBuilder();
+        List<Integer> claimedIds = new ArrayList<>();
+        List<Integer> acceptedIds = new ArrayList<>();
+
+        int position = 0;
+        for (Prescription prescription : prescriptions) {
+            long start = System.nanoTime();
+            // Messages are only rendered for records that fail
+            int failed = VALIDATOR.validate(prescription);
+            start = METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_VALIDATE, start);
+            if (failed != 0) {
+                METRICS.recordRejections(failed);
+                List<String> errors = VALIDATOR.messages(failed);
+                sink.prescriptionRejected(prescription.prescID, errors);
+                result.reject(position++, errors);
+                continue;
+            }
+            if (registry != null) {
+                try {
+                    if (registry.claim(prescription.prescID)) {
+                        claimedIds.add(prescription.prescID);
+                    }
+                } catch (IllegalArgumentException e) {
+                    METRICS.recordRejection("duplicateId");
+                    List<String> errors = Collections.singletonList(e.getMessage());
+                    sink.prescriptionRejected(prescription.prescID, errors);
+                    result.reject(position++, errors);
+                    continue;
+                }
+                start = System.nanoTime();
+            }
+            records.append(prescription.formatPrescription());
+            METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_SERIALIZE, start);
+            acceptedIds.add(prescription.prescID);
+            result.accept(position++);
         }
 
-        if (this.lastName == null || this.lastName.trim().isEmpty()) {
-            errorList.add("Please enter the last name.");
-        } else if (this.lastName.length() < 4 || this.lastName.length() > 15) {
-            errorList.add("Last name must be between 4 and 15 characters long.");
+        if (result.getAcceptedCount() == 0) {
+            return result;
         }
 
-        // Validate Address
-        if (this.address == null || this.address.trim().isEmpty()) {
-            errorList.add("Address cannot be empty.");
-        } else if (this.address.length() < 20) {
-            errorList.add("Address should be at least 20 characters long.");
+        try {
+            long start = System.nanoTime();
+            RecordAppender.forFile("presc.txt").appendRecords(records.toString());
+            METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_WRITE, start);
+        } catch (IOException e) {
+            for (int id : claimedIds) {
+                registry.release(id);
+            }
+            sink.writeFailed("presc.txt", result.getAcceptedCount(), e);
+            result.writeFailed(e);
+            return result;
         }
 
-        // Validate Sphere, Cylinder, Axis
-        if (this.sphere < -20.00f || this.sphere > 20.00f) {
-            errorList.add("Sphere value must be between -20.00 and 20.00.");
+        for (int id : acceptedIds) {
+            sink.prescriptionAdded(id);
         }
-        if (this.cylinder < -4.00f || this.cylinder > 4.00f) {
-            errorList.add("Cylinder value must be between -4.00 and 4.00.");
+
+        return result;
+    }
+
+    // Builds a prescription from named text fields - prescID, firstName, lastName, address, sphere,
+    // cylinder, axis, examinationDate (dd/MM/yy) and optometrist - as the bulk import and HTTP
+    // feeds supply them. Numbers that cannot be parsed are reported in errorList and left at 0;
+    // the validation rules themselves are not applied here.
+    static Prescription fromFields(Map<String, String> fields, List<String> errorList) {
+        Prescription prescription = new Prescription();
+        try {
+            prescription.setPrescID(Integer.parseInt(trimmed(fields.get("prescID"))));
+        } catch (NumberFormatException e) {
+            errorList.add("Invalid input. Prescription ID must be an integer.");
         }
-        if (this.axis < 0.0f || this.axis > 180.0f) {
-            errorList.add("Axis value must be between 0 and 180.");
+        prescription.setFirstName(fields.get("firstName"));
+        prescription.setLastName(fields.get("lastName"));
+        prescription.setAddress(fields.get("address"));
+        try {
+            prescription.setSphere(Float.parseFloat(trimmed(fields.get("sphere"))));
+        } catch (NumberFormatException | NullPointerException e) {
+            errorList.add("Invalid input. Sphere value must be a number (float).");
         }
+        try {
+            prescription.setCylinder(Float.parseFloat(trimmed(fields.get("cylinder"))));
+        } catch (NumberFormatException | NullPointerException e) {
+            errorList.add("Invalid input. Cylinder value must be a number (float).");
+        }
+        try {
+            prescription.setAxis(Float.parseFloat(trimmed(fields.get("axis"))));
+        } catch (NumberFormatException | NullPointerException e) {
+            errorList.add("Invalid input. Axis value must be a number (float).");
+        }
+        String date = fields.get("examinationDate");
+        prescription.setExaminationDate(date != null ? parseExaminationDate(date.trim()) : null);
+        prescription.setOptometrist(fields.get("optometrist"));
+        return prescription;
+    }
 
-        // Validate Examination Date
+    private static String trimmed(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    // Runs all prescription validation rules and returns the error messages (empty when valid)
+    List<String> validatePrescription() {
+        int failed = VALIDATOR.validate(this);
+        METRICS.recordRejections(failed);
+        return VALIDATOR.messages(failed);
+    }
+
+    // Renders the prescription block exactly as it is stored in presc.txt
+    String formatPrescription() {
+        String dateStr = this.examinationDate != null ? formatExaminationDate() : "N/A";
+        return "Prescription ID: " + this.prescID + "\n"
+                + "First Name: " + this.firstName + "\n"
+                + "Last Name: " + this.lastName + "\n"
+                + "Address: " + this.address + "\n"
+                + "Sphere: " + this.sphere + "\n"
+                + "Cylinder: " + this.cylinder + "\n"
+                + "Axis: " + this.axis + "\n"
+                + "Examination Date: " + dateStr + "\n"
+                + "Optometrist: " + this.optometrist + "\n\n";
+    }
+
+    private String formatExaminationDate() {
+        return DATE_FORMAT.format(this.examinationDate.toInstant().atZone(ZoneId.systemDefault()));
+    }
+
+    // Rebuilds a prescription from a block written by formatPrescription(). Unknown lines are ignored.
+    static Prescription parsePrescription(String block) {
+        Prescription prescription = new Prescription();
+        for (String line : block.split("\n")) {
+            int colon = line.indexOf(": ");
+            if (colon < 0) {
+                continue;
+            }
+            String value = line.substring(colon + 2);
+            switch (line.substring(0, colon)) {
+                case "Prescription ID":
+                    prescription.prescID = Integer.parseInt(value.trim());
+                    break;
+                case "First Name":
+                    prescription.firstName = value;
+                    break;
+                case "Last Name":
+                    prescription.lastName = value;
+                    break;
+                case "Address":
+                    prescription.address = value;
+                    break;
+                case "Sphere":
+                    prescription.sphere = Float.parseFloat(value);
+                    break;
+                case "Cylinder":
+                    prescription.cylinder = Float.parseFloat(value);
+                    break;
+                case "Axis":
+                    prescription.axis = Float.parseFloat(value);
+                    break;
+                case "Examination Date":
+                    prescription.examinationDate = parseExaminationDate(value);
+                    break;
+                case "Optometrist":
+                    prescription.optometrist = OPTOMETRISTS.intern(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return prescription;
+    }
+
+    // Parses a dd/MM/yy date as written to presc.txt; "N/A" or malformed dates become null
+    static Date parseExaminationDate(String value) {
+        // Records written by formatPrescription() are always dd/MM/yy exactly; skip building a
+        // SimpleDateFormat for them, which dominates the cost of loading a record
+        if (value.length() == 8 && value.charAt(2) == '/' && value.charAt(5) == '/') {
+            int day = twoDigits(value, 0);
+            int month = twoDigits(value, 3);
+            int year = twoDigits(value, 6);
+            if (day >= 0 && month >= 0 && year >= 0) {
+                return dateFromEpochDay(epochDayOf(day, month, year));
+            }
+        }
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy");
         dateFormat.setLenient(false); // Strict date parsing
-        String dateStr;
-        if (this.examinationDate != null) {
-            try {
-                dateStr = dateFormat.format(this.examinationDate);
-            } catch (Exception e) {
-                errorList.add("There was an issue formatting the examination date.");
-                dateStr = "N/A";
-            }
-        } else {
-            errorList.add("Please provide a valid examination date in the format dd/MM/yy.");
-            dateStr = "N/A";
+        try {
+            return dateFormat.parse(value);
+        } catch (ParseException e) {
+            return null;
         }
+    }
 
-        // Validate Optometrist Name
-        if (this.optometrist == null || this.optometrist.trim().isEmpty()) {
-            errorList.add("Optometrist name cannot be empty.");
-        } else if (this.optometrist.length() < 8 || this.optometrist.length() > 25) {
-            errorList.add("Optometrist name must be between 8 and 25 characters long.");
+    private static int twoDigits(String value, int index) {
+        char high = value.charAt(index);
+        char low = value.charAt(index + 1);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
         }
+        return (high - '0') * 10 + (low - '0');
+    }
 
-        // If there are validation errors, print them and throw an exception
+    // Epoch day of a dd/MM/yy date given as its parts, or NO_EPOCH_DAY when it is not a real date.
+    // The century is resolved like parseExaminationDate(): within 80 years before and 20 after today.
+    static int epochDayOf(int day, int month, int twoDigitYear) {
+        LocalDate centuryStart = LocalDate.now().minusYears(80);
+        int year = centuryStart.getYear() / 100 * 100 + twoDigitYear;
+        try {
+            LocalDate date = LocalDate.of(year, month, day);
+            return (int) (date.isBefore(centuryStart) ? date.plusYears(100) : date).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_EPOCH_DAY;
+        }
+    }
+
+    // Examination date as days since 1970-01-01 in the local time zone, or NO_EPOCH_DAY
+    int examinationEpochDay() {
+        if (this.examinationDate == null) {
+            return NO_EPOCH_DAY;
+        }
+        return (int) this.examinationDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    static Date dateFromEpochDay(int epochDay) {
+        if (epochDay == NO_EPOCH_DAY) {
+            return null;
+        }
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public boolean addRemark() throws IllegalArgumentException {
+        return addRemark(null);
+    }
+
+    // Same as addRemark(), but the 2-remark limit is enforced through the store, so it holds
+    // across Prescription objects, threads and restarts instead of only for this object
+    public boolean addRemark(RemarkStore store) throws IllegalArgumentException {
+        return addRemark(store, Paths.get("remark.txt"));
+    }
+
+    // Same as addRemark(RemarkStore), but appends to the given file instead of remark.txt
+    public boolean addRemark(RemarkStore store, Path file) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        List<String> errorList = validateRemark(store);
+        if (errorList.isEmpty() && store != null && !store.tryReserve(prescID)) {
+            METRICS.recordRejection("remarkLimit");
+            errorList.add("You can only add up to 2 remarks.");
+        }
+        start = METRICS.recordSince(PrescriptionMetrics.Phase.REMARK_VALIDATE, start);
+
+        // If there are validation errors, report them and throw an exception
         if (!errorList.isEmpty()) {
-            System.out.println("Please address the following issues before proceeding:");
-            for (String error : errorList) {
-                System.out.println("- " + error);
-            }
+            eventSink.remarkRejected(prescID, errorList);
             throw new IllegalArgumentException(String.join("\n", errorList));
         }
 
-        // If all conditions are valid, write the data to the file
-        try (FileWriter fw = new FileWriter("presc.txt", true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
-
-            // Write prescription details to the file
-            out.println("Prescription ID: " + this.prescID);
-            out.println("First Name: " + this.firstName);
-            out.println("Last Name: " + this.lastName);
-            out.println("Address: " + this.address);
-            out.println("Sphere: " + this.sphere);
-            out.println("Cylinder: " + this.cylinder);
-            out.println("Axis: " + this.axis);
-            out.println("Examination Date: " + dateStr);
-            out.println("Optometrist: " + this.optometrist + "\n");
-
-            System.out.println("Prescription successfully added!\n");
+        // All validations passed, add the remark
+        postRemarks.add(remarkText);
+
+        // Write the remark to remark.txt
+        try {
+            String record = formatRemark();
+            start = METRICS.recordSince(PrescriptionMetrics.Phase.REMARK_SERIALIZE, start);
+            RecordAppender.forPath(file).appendRecords(record);
+            METRICS.recordSince(PrescriptionMetrics.Phase.REMARK_WRITE, start);
+
+            eventSink.remarkAdded(prescID);
         } catch (IOException e) {
-            System.err.println("An error occurred while saving the prescription: " + e.getMessage());
+            if (store != null) {
+                store.release(prescID);
+            }
+            eventSink.remarkWriteFailed(prescID, e);
             return false;
         }
 
-        return true; // If all went well
+        return true;
     }
 
-    public boolean addRemark() throws IllegalArgumentException {
+    // Same validation as addPrescription(), but the record is queued on the writer and appended
+    // to presc.txt by its background thread. The future completes with false if the write fails.
+    public CompletableFuture<Boolean> addPrescriptionAsync(AppendLogWriter writer) throws IllegalArgumentException {
+        return addPrescriptionAsync(writer, null);
+    }
+
+    // Same as addPrescriptionAsync(AppendLogWriter), but claims the ID in the registry before
+    // queueing, as addPrescription(PrescriptionIdRegistry) does; the claim is released if the write fails
+    public CompletableFuture<Boolean> addPrescriptionAsync(AppendLogWriter writer, PrescriptionIdRegistry registry)
+            throws IllegalArgumentException {
+        long start = System.nanoTime();
+        List<String> errorList = validatePrescription();
+        boolean claimed = false;
+        if (errorList.isEmpty() && registry != null) {
+            try {
+                claimed = registry.claim(this.prescID);
+            } catch (IllegalArgumentException e) {
+                METRICS.recordRejection("duplicateId");
+                errorList.add(e.getMessage());
+            }
+        }
+        start = METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_VALIDATE, start);
+
+        if (!errorList.isEmpty()) {
+            eventSink.prescriptionRejected(this.prescID, errorList);
+            throw new IllegalArgumentException(String.join("\n", errorList));
+        }
+
+        String record = formatPrescription();
+        METRICS.recordSince(PrescriptionMetrics.Phase.PRESCRIPTION_SERIALIZE, start);
+        CompletableFuture<Boolean> written = writer.append("presc.txt", record);
+        int id = this.prescID;
+        if (claimed) {
+            written = written.whenComplete((ok, error) -> {
+                if (!Boolean.TRUE.equals(ok)) {
+                    registry.release(id);
+                }
+            });
+        }
+        PrescriptionEventSink sink = eventSink;
+        if (sink == PrescriptionEventSink.NO_OP) {
+            return written;
+        }
+        // Failed commits are reported once per group by the writer itself
+        return written.whenComplete((ok, error) -> {
+            if (Boolean.TRUE.equals(ok)) {
+                sink.prescriptionAdded(id);
+            }
+        });
+    }
+
+    // Same validation as addRemark(), but the remark is queued on the writer and appended
+    // to remark.txt by its background thread. The future completes with false if the write fails.
+    public CompletableFuture<Boolean> addRemarkAsync(AppendLogWriter writer) throws IllegalArgumentException {
+        return addRemarkAsync(writer, null);
+    }
+
+    // Same as addRemarkAsync(AppendLogWriter), but reserves a slot in the store before queueing,
+    // as addRemark(RemarkStore) does; the slot is given back if the write fails
+    public CompletableFuture<Boolean> addRemarkAsync(AppendLogWriter writer, RemarkStore store)
+            throws IllegalArgumentException {
+        long start = System.nanoTime();
+        List<String> errorList = validateRemark(store);
+        boolean reserved = false;
+        if (errorList.isEmpty() && store != null) {
+            reserved = store.tryReserve(prescID);
+            if (!reserved) {
+                METRICS.recordRejection("remarkLimit");
+                errorList.add("You can only add up to 2 remarks.");
+            }
+        }
+        start = METRICS.recordSince(PrescriptionMetrics.Phase.REMARK_VALIDATE, start);
+
+        if (!errorList.isEmpty()) {
+            eventSink.remarkRejected(prescID, errorList);
+            throw new IllegalArgumentException(String.join("\n", errorList));
+        }
+
+        postRemarks.add(remarkText);
+        String record = formatRemark();
+        METRICS.recordSince(PrescriptionMetrics.Phase.REMARK_SERIALIZE, start);
+        CompletableFuture<Boolean> written = writer.append("remark.txt", record);
+        int id = this.prescID;
+        if (reserved) {
+            written = written.whenComplete((ok, error) -> {
+                if (!Boolean.TRUE.equals(ok)) {
+                    store.release(id);
+                }
+            });
+        }
+        PrescriptionEventSink sink = eventSink;
+        if (sink == PrescriptionEventSink.NO_OP) {
+            return written;
+        }
+        return written.whenComplete((ok, error) -> {
+            if (Boolean.TRUE.equals(ok)) {
+                sink.remarkAdded(id);
+            }
+        });
+    }
+
+    // Runs all remark validation rules and returns the error messages (empty when valid)
+    List<String> validateRemark() {
+        return validateRemark(null);
+    }
+
+    // With a store, the remark limit is checked against its persisted count for this ID
+    List<String> validateRemark(RemarkStore store) {
         List<String> errorList = new ArrayList<>();
 
         // Check if remarks are less than 2
-        if (postRemarks.size() >= 2) {
+        if (store != null ? store.isFull(prescID) : postRemarks.size() >= RemarkStore.MAX_REMARKS) {
+            METRICS.recordRejection("remarkLimit");
             errorList.add("You can only add up to 2 remarks.");
         }
 
         // Validate Remark Type
-        if (remarkType == null || remarkType.trim().isEmpty()) {
+        if (remarkType == null || PrescriptionValidator.isBlank(remarkType)) {
+            METRICS.recordRejection("remarkTypeMissing");
             errorList.add("Please specify the type of remark (Client or Optometrist).");
         } else {
             String remarkTypeLower = remarkType.toLowerCase();
             if (!remarkTypeLower.equals("client") && !remarkTypeLower.equals("optometrist")) {
+                METRICS.recordRejection("remarkTypeInvalid");
                 errorList.add("Remark type must be either 'Client' or 'Optometrist'.");
             }
         }
 
+        // A line break would end the remark's line, or the whole record at a blank line, in remark.txt
+        if (PrescriptionValidator.hasControlCharacter(remarkType) || PrescriptionValidator.hasControlCharacter(remarkText)) {
+            METRICS.recordRejection("remarkControlCharacters");
+            errorList.add("Remark fields cannot contain line breaks or other control characters.");
+        }
+
         // Validate Remark Text
-        if (remarkText == null || remarkText.trim().isEmpty()) {
+        long scan = remarkText == null ? 0 : RemarkTextScanner.scan(remarkText);
+        if (remarkText == null || RemarkTextScanner.isEmpty(scan)) {
+            METRICS.recordRejection("remarkTextEmpty");
             errorList.add("Remark text cannot be empty.");
         } else {
-            String[] words = remarkText.trim().split("\\s+");
-            int wordCount = words.length;
+            int wordCount = RemarkTextScanner.wordCount(scan);
             if (wordCount < 6 || wordCount > 20) {
+                METRICS.recordRejection("remarkWordCount");
                 errorList.add("Remark must be between 6 and 20 words.");
             }
             // Check if the first character of the first word is uppercase
-            if (wordCount > 0 && !Character.isUpperCase(words[0].charAt(0))) {
+            if (!RemarkTextScanner.startsWithCapital(scan)) {
+                METRICS.recordRejection("remarkCapital");
                 errorList.add("The first word of the remark should start with a capital letter.");
             }
         }
 
-        // If there are validation errors, print them and throw an exception
-        if (!errorList.isEmpty()) {
-            System.out.println("Please correct the following issues with your remark:");
-            for (String error : errorList) {
-                System.out.println("- " + error);
-            }
-            throw new IllegalArgumentException(String.join("\n", errorList));
-        }
-
-        // All validations passed, add the remark
-        postRemarks.add(remarkText);
-
-        // Write the remark to remark.txt
-        try (FileWriter fw = new FileWriter("remark.txt", true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
-
-            out.println("Prescription ID: " + prescID);
-            out.println("Remark Type: " + capitalize(remarkType));
-            out.println("Remark: " + remarkText + "\n");
-
-            System.out.println("Remark successfully added!\n");
-        } catch (IOException e) {
-            System.err.println("An error occurred while saving the remark: " + e.getMessage());
-            return false;
-        }
+        return errorList;
+    }
 
-        return true;
+    // Renders the remark block exactly as it is stored in remark.txt
+    String formatRemark() {
+        return "Prescription ID: " + prescID + "\n"
+                + "Remark Type: " + capitalize(remarkType) + "\n"
+                + "Remark: " + remarkText + "\n\n";
     }
 
     // Helper method to capitalize the first letter
@@ -188,6 +556,51 @@ public class Prescription {
         return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
     }
 
+    // Installs the sink for all prescriptions and remarks; null restores the silent default
+    public static void setEventSink(PrescriptionEventSink sink) {
+        eventSink = sink != null ? sink : PrescriptionEventSink.NO_OP;
+    }
+
+    public static PrescriptionEventSink getEventSink() {
+        return eventSink;
+    }
+
+    public int getPrescID() {
+        return prescID;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public float getSphere() {
+        return sphere;
+    }
+
+    public float getAxis() {
+        return axis;
+    }
+
+    public float getCylinder() {
+        return cylinder;
+    }
+
+    public Date getExaminationDate() {
+        return examinationDate;
+    }
+
+    public String getOptometrist() {
+        return optometrist;
+    }
+
     // Setters for testing purposes
     public void setPrescID(int prescID) {
         this.prescID = prescID;
@@ -237,6 +650,26 @@ public class Prescription {
      // Main method for user interaction.
 
     public static void main(String[] args) {
+        METRICS.registerMBeans();
+        setEventSink(new ConsoleEventSink());
+        for (String fileName : List.of("presc.txt", "remark.txt")) {
+            try {
+                RecordRecovery.Report recovery = RecordRecovery.recover(fileName);
+                if (recovery.getDroppedBytes() > 0) {
+                    System.out.println(recovery);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not check " + fileName + " for incomplete records: " + e.getMessage());
+            }
+        }
+        // Known IDs come from presc.txt (and its archive), so IDs from earlier sessions are rejected too
+        PrescriptionIdRegistry registry;
+        try {
+            registry = PrescriptionIdRegistry.load("presc.txt", PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading existing prescriptions: " + e.getMessage());
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         Prescription prescription = new Prescription();
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy");
@@ -326,9 +759,18 @@ public class Prescription {
 
             // Add Prescription
             try {
-                boolean prescriptionAdded = prescription.addPrescription();
+                boolean prescriptionAdded = prescription.addPrescription(registry);
 
                 if (prescriptionAdded) {
+                    // Remark counts come from remark.txt, so remarks from earlier sessions count too
+                    RemarkStore remarkStore;
+                    try {
+                        remarkStore = RemarkStore.load("remark.txt");
+                    } catch (IOException e) {
+                        System.err.println("An error occurred while reading existing remarks: " + e.getMessage());
+                        return;
+                    }
+
                     // Allow adding remarks
                     while (true) {
                         System.out.print("Would you like to add a remark? (yes/no): ");
@@ -349,7 +791,7 @@ public class Prescription {
 
                         // Add Remark
                         try {
-                            prescription.addRemark();
+                            prescription.addRemark(remarkStore);
                         } catch (IllegalArgumentException iae) {
                             System.out.println("Unable to add remark due to the following issues:");
                             String[] errors = iae.getMessage().split("\n");
@@ -358,7 +800,7 @@ public class Prescription {
                             }
                         }
 
-                        if (prescription.postRemarks.size() >= 2) {
+                        if (remarkStore.isFull(prescription.prescID)) {
                             System.out.println("You have reached the maximum of 2 remarks.");
                             break;
                         }
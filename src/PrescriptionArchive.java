@@ -0,0 +1,611 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compressed, read-only home for prescriptions examined in past years, which are rarely read but
+// would otherwise stay in presc.txt as plain text. archive() moves the latest record of every ID
+// examined before a cut-off date from presc.txt into <presc file>.archive, merging with what
+// that file already holds.
+//
+// The archive is a sequence of independently deflated blocks of about BLOCK_SIZE bytes of record
+// text, sorted by prescription ID, followed by a block index:
+//   header   int magic, int version
+//   blocks   zlib-compressed record blocks, each as written to presc.txt and ending in a blank line
+//   index    per block: long offset, int compressed length, int text length, int record count,
+//            int first ID, int last ID, int earliest epoch day, int latest epoch day
+//   trailer  int block count, long index offset, int magic
+// A lookup by ID binary-searches the index and inflates one block; a date range inflates only
+// the blocks whose day range overlaps it; full scans inflate blocks in parallel. The zlib
+// checksum rejects a damaged block. The file is written to a temporary file and moved into
+// place, so readers see the old archive or the new one. Reads are safe from any number of threads.
+public class PrescriptionArchive implements AutoCloseable {
+    static final int MAGIC = 0x50525341; // "PRSA"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 32 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 8 + 4 * 7;
+    private static final int TRAILER_SIZE = 4 + 8 + 4;
+    private static final String ID_PREFIX = RecordField.PRESCRIPTION_ID.getLabel() + ": ";
+    private static final byte[] ID_BYTES = ID_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] textLengths;
+    private final int[] recordCounts;
+    private final int[] firstIds;
+    private final int[] lastIds;
+    private final int[] minDays;
+    private final int[] maxDays;
+
+    private PrescriptionArchive(Path path, FileChannel channel, ByteBuffer index, int blocks) {
+        this.path = path;
+        this.channel = channel;
+        offsets = new long[blocks];
+        compressedLengths = new int[blocks];
+        textLengths = new int[blocks];
+        recordCounts = new int[blocks];
+        firstIds = new int[blocks];
+        lastIds = new int[blocks];
+        minDays = new int[blocks];
+        maxDays = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            offsets[i] = index.getLong();
+            compressedLengths[i] = index.getInt();
+            textLengths[i] = index.getInt();
+            recordCounts[i] = index.getInt();
+            firstIds[i] = index.getInt();
+            lastIds[i] = index.getInt();
+            minDays[i] = index.getInt();
+            maxDays[i] = index.getInt();
+        }
+    }
+
+    // Usage: PrescriptionArchive <year>
+    // Moves prescriptions examined before 1 January of the year from presc.txt to presc.txt.archive
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: PrescriptionArchive <year>");
+            return;
+        }
+        try {
+            Path prescFile = Paths.get("presc.txt");
+            LocalDate before = LocalDate.of(Integer.parseInt(args[0]), 1, 1);
+            System.out.println(archive(prescFile, pathFor(prescFile), before));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("An error occurred while archiving: " + e.getMessage());
+        }
+    }
+
+    // Where the archive for a prescription file lives
+    public static Path pathFor(Path prescriptionFile) {
+        return prescriptionFile.resolveSibling(prescriptionFile.getFileName() + ".archive");
+    }
+
+    public static PrescriptionArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (size < HEADER_SIZE + TRAILER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(path + " is not a prescription archive.");
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            int blocks = trailer.getInt();
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || blocks < 0
+                    || indexOffset + (long) blocks * INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+                throw new IOException(path + " has a damaged block index.");
+            }
+            return new PrescriptionArchive(path, channel, read(channel, indexOffset, blocks * INDEX_ENTRY_SIZE), blocks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getBlockCount() {
+        return offsets.length;
+    }
+
+    public long getRecordCount() {
+        long records = 0;
+        for (int count : recordCounts) {
+            records += count;
+        }
+        return records;
+    }
+
+    // The archived prescription with the ID, or null; inflates at most one block
+    public Prescription find(int prescID) throws IOException {
+        int block = blockFor(prescID);
+        if (block < 0) {
+            return null;
+        }
+        // IDs are compared in the inflated bytes; only the match is decoded
+        byte[] text = inflate(block);
+        for (int start = 0, end; start < text.length; start = end) {
+            end = recordEnd(text, start);
+            if (idAt(text, start, end) == prescID) {
+                return Prescription.parsePrescription(new String(text, start, end - start, StandardCharsets.UTF_8));
+            }
+        }
+        return null;
+    }
+
+    // Archived prescriptions examined between the dates (inclusive), ordered by ID; only blocks
+    // whose day range overlaps are inflated, in parallel
+    public List<Prescription> findByExaminationDate(LocalDate from, LocalDate to) throws IOException {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        try {
+            return IntStream.range(0, offsets.length)
+                    .filter(block -> minDays[block] <= toDay && maxDays[block] >= fromDay)
+                    .parallel()
+                    .mapToObj(this::prescriptionsIn)
+                    .flatMap(List::stream)
+                    .filter(p -> p.examinationEpochDay() >= fromDay && p.examinationEpochDay() <= toDay)
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Every archived prescription as a parallel stream, each block inflated by whichever worker
+    // reaches it. Use forEachOrdered() or an ordered collector for ID order. A damaged block
+    // surfaces as an UncheckedIOException.
+    public Stream<Prescription> prescriptions() {
+        return IntStream.range(0, offsets.length)
+                .parallel()
+                .mapToObj(this::prescriptionsIn)
+                .flatMap(List::stream);
+    }
+
+    // Visits every archived ID in ascending order, without parsing the records
+    public void forEachId(IntConsumer action) throws IOException {
+        for (int block = 0; block < offsets.length; block++) {
+            byte[] text = inflate(block);
+            for (int start = 0, end; start < text.length; start = end) {
+                end = recordEnd(text, start);
+                action.accept(idAt(text, start, end));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // The block whose ID range holds the ID, or -1
+    private int blockFor(int prescID) {
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lastIds[mid] < prescID) {
+                low = mid + 1;
+            } else if (firstIds[mid] > prescID) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private List<Prescription> prescriptionsIn(int block) {
+        try {
+            List<String> records = records(block);
+            List<Prescription> prescriptions = new ArrayList<>(records.size());
+            for (String record : records) {
+                prescriptions.add(Prescription.parsePrescription(record));
+            }
+            return prescriptions;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Inflates one block and splits it into record texts, each ending in its blank line
+    private List<String> records(int block) throws IOException {
+        byte[] text = inflate(block);
+        List<String> records = new ArrayList<>(recordCounts[block]);
+        for (int start = 0, end; start < text.length; start = end) {
+            end = recordEnd(text, start);
+            records.add(new String(text, start, end - start, StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private byte[] inflate(int block) throws IOException {
+        byte[] text = new byte[textLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(read(channel, offsets[block], compressedLengths[block]));
+            if (inflater.inflate(text) != text.length || !inflater.finished()) {
+                throw new IOException("Block " + block + " of " + path + " is damaged.");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " of " + path + " is damaged: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return text;
+    }
+
+    // End of the record starting at start: just past its blank line
+    private static int recordEnd(byte[] text, int start) {
+        for (int i = start + 1; i < text.length; i++) {
+            if (text[i] == '\n' && text[i - 1] == '\n') {
+                return i + 1;
+            }
+        }
+        return text.length;
+    }
+
+    // The ID on the "Prescription ID:" line of the record in [start, end), parsed in place
+    private static int idAt(byte[] text, int start, int end) {
+        for (int line = start; line < end; ) {
+            if (startsWith(text, line, ID_BYTES)) {
+                int value = 0;
+                int i = line + ID_BYTES.length;
+                while (i < end && text[i] == ' ') {
+                    i++;
+                }
+                boolean negative = i < end && text[i] == '-';
+                if (negative) {
+                    i++;
+                }
+                for (; i < end && text[i] >= '0' && text[i] <= '9'; i++) {
+                    value = value * 10 + (text[i] - '0');
+                }
+                return negative ? -value : value;
+            }
+            while (line < end && text[line] != '\n') {
+                line++;
+            }
+            line++;
+        }
+        throw new IllegalStateException("Archived record at " + start + " has no prescription ID.");
+    }
+
+    private static boolean startsWith(byte[] text, int offset, byte[] prefix) {
+        if (offset + prefix.length > text.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (text[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Positional read, so concurrent lookups do not share a file position
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive at offset " + (position + buffer.position()) + ".");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // The ID on a record's "Prescription ID:" line
+    private static int idOf(String record) {
+        int start = record.indexOf(ID_PREFIX);
+        int end = record.indexOf('\n', start);
+        return Integer.parseInt(record.substring(start + ID_PREFIX.length(), end).trim());
+    }
+
+    // Moves the latest record of every prescription examined before the date out of the
+    // prescription file and into the archive at pathFor(prescriptionFile). Records without a
+    // valid examination date stay in the file. An ID already in the archive takes the newer
+    // record. Runs alongside live appends the way RecordCompactor does: records appended during
+    // the run are kept, and a record appended later for an archived ID supersedes the archived one.
+    public static Result archive(Path prescriptionFile, Path archiveFile, LocalDate before) throws IOException {
+        int beforeDay = (int) before.toEpochDay();
+        RecordAppender appender = RecordAppender.forPath(prescriptionFile);
+        // The compactor takes the same lock, so the two never rewrite the file at once
+        synchronized (appender) {
+            long snapshot = appender.size();
+            try (MappedRecordReader reader = MappedRecordReader.open(prescriptionFile)) {
+                // Latest record per ID, and which of those fall before the cut-off
+                IntLongMap latest = new IntLongMap(1024);
+                MappedRecordReader.Cursor cursor = reader.cursor(0, snapshot);
+                long records = 0;
+                while (cursor.next()) {
+                    records++;
+                    if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                        latest.put(cursor.intValue(RecordField.PRESCRIPTION_ID), cursor.offset());
+                    }
+                }
+                Moved moved = new Moved();
+                cursor = reader.cursor(0, snapshot);
+                while (cursor.next()) {
+                    if (cursor.has(RecordField.PRESCRIPTION_ID)
+                            && latest.get(cursor.intValue(RecordField.PRESCRIPTION_ID)) == cursor.offset()) {
+                        int day = cursor.epochDayValue(RecordField.EXAMINATION_DATE);
+                        if (day != Prescription.NO_EPOCH_DAY && day < beforeDay) {
+                            moved.add(cursor.intValue(RecordField.PRESCRIPTION_ID), day, cursor.offset(), cursor.length());
+                        }
+                    }
+                }
+                if (moved.size == 0) {
+                    return new Result(0, snapshot, snapshot, Files.exists(archiveFile) ? Files.size(archiveFile) : 0);
+                }
+
+                long archiveSize = writeArchive(prescriptionFile, moved, archiveFile);
+                IntLongMap moving = new IntLongMap(moved.size);
+                for (int i = 0; i < moved.size; i++) {
+                    moving.put(moved.ids[i], 0);
+                }
+
+                // Drop every record of the moved IDs from the live file
+                RecordCompactor.Plan plan = new RecordCompactor.Plan(records);
+                cursor = reader.cursor(0, snapshot);
+                while (cursor.next()) {
+                    if (!cursor.has(RecordField.PRESCRIPTION_ID)
+                            || !moving.containsKey(cursor.intValue(RecordField.PRESCRIPTION_ID))) {
+                        plan.add(cursor.offset(), cursor.length());
+                    }
+                }
+                Path temp = prescriptionFile.resolveSibling(prescriptionFile.getFileName() + ".unarchived");
+                try {
+                    long remainingSize = plan.writeTo(prescriptionFile, temp);
+                    appender.replaceWith(temp, snapshot);
+                    return new Result(moving.size(), snapshot, remainingSize, archiveSize);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    // Writes the moved records merged with the existing archive, in ID order, to a new archive
+    // that replaces the old one; returns its size
+    private static long writeArchive(Path prescriptionFile, Moved moved, Path archiveFile) throws IOException {
+        // (ID << 32 | position) sorts the moved records by ID
+        long[] order = new long[moved.size];
+        for (int i = 0; i < moved.size; i++) {
+            order[i] = (long) moved.ids[i] << 32 | i;
+        }
+        Arrays.sort(order);
+
+        Path temp = archiveFile.resolveSibling(archiveFile.getFileName() + ".tmp");
+        try (BlockWriter writer = new BlockWriter(temp);
+             FileChannel in = FileChannel.open(prescriptionFile, StandardOpenOption.READ)) {
+            PrescriptionArchive existing = Files.exists(archiveFile) ? open(archiveFile) : null;
+            try {
+                int block = 0;
+                List<String> pending = List.of();
+                int pendingIndex = 0;
+                for (long key : order) {
+                    int prescID = (int) (key >> 32);
+                    // Older archived records up to this ID, skipping the one this record replaces
+                    while (existing != null) {
+                        if (pendingIndex == pending.size()) {
+                            if (block == existing.getBlockCount()) {
+                                break;
+                            }
+                            pending = existing.records(block++);
+                            pendingIndex = 0;
+                            continue;
+                        }
+                        String record = pending.get(pendingIndex);
+                        int archivedID = idOf(record);
+                        if (archivedID > prescID) {
+                            break;
+                        }
+                        if (archivedID < prescID) {
+                            writer.add(archivedID, Prescription.parsePrescription(record).examinationEpochDay(),
+                                    record.getBytes(StandardCharsets.UTF_8));
+                        }
+                        pendingIndex++;
+                    }
+                    int i = (int) key;
+                    // Positional reads; a cursor per record would map a fresh window each time
+                    writer.add(prescID, moved.days[i], withBlankLine(read(in, moved.offsets[i], moved.lengths[i]).array()));
+                }
+                while (existing != null && (pendingIndex < pending.size() || block < existing.getBlockCount())) {
+                    if (pendingIndex == pending.size()) {
+                        pending = existing.records(block++);
+                        pendingIndex = 0;
+                        continue;
+                    }
+                    String record = pending.get(pendingIndex++);
+                    writer.add(idOf(record), Prescription.parsePrescription(record).examinationEpochDay(),
+                            record.getBytes(StandardCharsets.UTF_8));
+                }
+            } finally {
+                if (existing != null) {
+                    existing.close();
+                }
+            }
+        }
+        Files.move(temp, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(archiveFile);
+    }
+
+    // Latest records of the IDs being archived, in file order
+    private static final class Moved {
+        int[] ids = new int[64];
+        int[] days = new int[64];
+        long[] offsets = new long[64];
+        int[] lengths = new int[64];
+        int size;
+
+        void add(int prescID, int epochDay, long offset, int length) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                days = Arrays.copyOf(days, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            ids[size] = prescID;
+            days[size] = epochDay;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+    }
+
+    // The block followed by its blank line; the last block of a file may also lack its line break
+    private static byte[] withBlankLine(byte[] block) {
+        int breaks = block.length > 0 && block[block.length - 1] == '\n' ? 1 : 2;
+        byte[] record = Arrays.copyOf(block, block.length + breaks);
+        Arrays.fill(record, block.length, record.length, (byte) '\n');
+        return record;
+    }
+
+    // Packs records, added in ID order, into deflated blocks and writes the index on close()
+    private static final class BlockWriter implements AutoCloseable {
+        private final FileChannel out;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream(BLOCK_SIZE + 4096);
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private byte[] compressed = new byte[BLOCK_SIZE];
+        private long position = HEADER_SIZE;
+        private int blocks;
+        private int records;
+        private int firstId;
+        private int lastId;
+        private int minDay;
+        private int maxDay;
+
+        BlockWriter(Path path) throws IOException {
+            out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+        }
+
+        // record is the block text including its terminating blank line
+        void add(int prescID, int epochDay, byte[] record) throws IOException {
+            if (records == 0) {
+                firstId = prescID;
+                minDay = Integer.MAX_VALUE;
+                maxDay = Integer.MIN_VALUE;
+            }
+            records++;
+            lastId = prescID;
+            if (epochDay != Prescription.NO_EPOCH_DAY) {
+                minDay = Math.min(minDay, epochDay);
+                maxDay = Math.max(maxDay, epochDay);
+            }
+            text.writeBytes(record);
+            if (text.size() >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (records == 0) {
+                return;
+            }
+            byte[] input = text.toByteArray();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            write(ByteBuffer.wrap(compressed, 0, length));
+
+            index.writeBytes(ByteBuffer.allocate(INDEX_ENTRY_SIZE).putLong(position).putInt(length)
+                    .putInt(input.length).putInt(records).putInt(firstId).putInt(lastId)
+                    .putInt(minDay).putInt(maxDay).array());
+            position += length;
+            blocks++;
+            records = 0;
+            text.reset();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                write(ByteBuffer.wrap(index.toByteArray()));
+                write(ByteBuffer.allocate(TRAILER_SIZE).putInt(blocks).putLong(position).putInt(MAGIC).flip());
+                out.force(true);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    // Outcome of one archive() run
+    public static class Result {
+        private final int archivedRecords;
+        private final long bytesBefore;
+        private final long bytesAfter;
+        private final long archiveBytes;
+
+        Result(int archivedRecords, long bytesBefore, long bytesAfter, long archiveBytes) {
+            this.archivedRecords = archivedRecords;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesAfter;
+            this.archiveBytes = archiveBytes;
+        }
+
+        // Prescriptions moved to the archive by this run
+        public int getArchivedRecords() {
+            return archivedRecords;
+        }
+
+        public long getBytesBefore() {
+            return bytesBefore;
+        }
+
+        public long getBytesAfter() {
+            return bytesAfter;
+        }
+
+        // Size of the archive file after the run
+        public long getArchiveBytes() {
+            return archiveBytes;
+        }
+
+        @Override
+        public String toString() {
+            return archivedRecords + " prescriptions archived; prescription file " + bytesBefore + " -> "
+                    + bytesAfter + " bytes, archive " + archiveBytes + " bytes";
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionArchiveTest {
+
+    private Path directory;
+    private Path prescFile;
+    private Path archiveFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive");
+        prescFile = directory.resolve("presc.txt");
+        archiveFile = PrescriptionArchive.pathFor(prescFile);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        RecordAppender.forPath(prescFile).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Prescription prescription(int id, LocalDate examined) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(Date.from(examined.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        prescription.setOptometrist("Dr. Robert Smith");
+        return prescription;
+    }
+
+    // Prescriptions 1..count, examined one day apart from 1 January 2015, written in reverse ID order
+    private void writePrescriptions(int count) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int id = count; id >= 1; id--) {
+            text.append(prescription(id, LocalDate.of(2015, 1, 1).plusDays(id - 1)).formatPrescription());
+        }
+        RecordAppender.forPath(prescFile).appendRecords(text.toString());
+    }
+
+    private List<Prescription> readPrescriptions() throws IOException {
+        try (MappedRecordReader reader = MappedRecordReader.open(prescFile);
+             Stream<Prescription> records = reader.prescriptions()) {
+            return records.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void test1_Archive_MovesOldPrescriptionsOutOfTheFile() throws IOException {
+        writePrescriptions(3000);
+        long before = Files.size(prescFile);
+
+        // 2015 and 2016 are 731 days
+        PrescriptionArchive.Result result = PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2017, 1, 1));
+
+        assertEquals(731, result.getArchivedRecords());
+        List<Prescription> remaining = readPrescriptions();
+        assertEquals(3000 - 731, remaining.size());
+        assertTrue(remaining.stream().allMatch(p -> p.getPrescID() > 731), "Only newer prescriptions should remain");
+        assertTrue(Files.size(archiveFile) < (before - Files.size(prescFile)) / 4,
+                "Archived records should compress well");
+
+        try (PrescriptionArchive archive = PrescriptionArchive.open(archiveFile)) {
+            assertEquals(731, archive.getRecordCount());
+            assertTrue(archive.getBlockCount() > 1, "Records should span several blocks");
+            Prescription found = archive.find(500);
+            assertEquals(500, found.getPrescID());
+            assertEquals(LocalDate.of(2015, 1, 1).plusDays(499).toEpochDay(), found.examinationEpochDay());
+            assertNull(archive.find(1000));
+        }
+    }
+
+    @Test
+    public void test2_FindByExaminationDate_ReadsOnlyMatchingRecords() throws IOException {
+        writePrescriptions(1000);
+        PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2018, 1, 1));
+
+        try (PrescriptionArchive archive = PrescriptionArchive.open(archiveFile)) {
+            List<Prescription> march = archive.findByExaminationDate(LocalDate.of(2016, 3, 1), LocalDate.of(2016, 3, 31));
+            assertEquals(31, march.size());
+            assertEquals(426, march.get(0).getPrescID()); // 2016 is a leap year
+
+            // The parallel scan sees every record once
+            try (Stream<Prescription> all = archive.prescriptions()) {
+                assertEquals(1000, all.mapToInt(Prescription::getPrescID).distinct().count());
+            }
+        }
+    }
+
+    @Test
+    public void test3_Archive_MergesWithExistingArchive() throws IOException {
+        writePrescriptions(100);
+        PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2015, 2, 1));
+
+        // A corrected version of an archived prescription, and more old ones
+        Prescription corrected = prescription(10, LocalDate.of(2015, 1, 10));
+        corrected.setOptometrist("Dr. Emily Davis");
+        RecordAppender.forPath(prescFile).appendRecords(corrected.formatPrescription());
+        PrescriptionArchive.Result result = PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2015, 3, 1));
+
+        assertEquals(29, result.getArchivedRecords());
+        try (PrescriptionArchive archive = PrescriptionArchive.open(archiveFile)) {
+            assertEquals(59, archive.getRecordCount());
+            assertEquals("Dr. Emily Davis", archive.find(10).getOptometrist());
+            assertNotNull(archive.find(59));
+        }
+        assertEquals(41, readPrescriptions().size());
+    }
+
+    @Test
+    public void test4_Registry_IncludesArchivedIds() throws IOException {
+        writePrescriptions(50);
+        PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2015, 1, 11));
+
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.load(prescFile,
+                PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+        assertEquals(50, registry.size());
+        assertThrows(IllegalArgumentException.class, () -> registry.claim(5));
+    }
+
+    @Test
+    public void test5_Find_RejectsDamagedBlock() throws IOException {
+        writePrescriptions(100);
+        PrescriptionArchive.archive(prescFile, archiveFile, LocalDate.of(2016, 1, 1));
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 0}), 40);
+        }
+
+        try (PrescriptionArchive archive = PrescriptionArchive.open(archiveFile)) {
+            assertThrows(IOException.class, () -> archive.find(1));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Outcome of Prescription.addPrescriptions(): which batch positions were accepted,
+// which were rejected (with their validation errors) and whether the write succeeded.
+public class PrescriptionBatchResult {
+    private final List<Integer> accepted = new ArrayList<>();
+    private final Map<Integer, List<String>> rejected = new LinkedHashMap<>();
+    private IOException writeError;
+
+    void accept(int position) {
+        accepted.add(position);
+    }
+
+    void reject(int position, List<String> errors) {
+        rejected.put(position, errors);
+    }
+
+    void writeFailed(IOException e) {
+        this.writeError = e;
+    }
+
+    public int getAcceptedCount() {
+        return accepted.size();
+    }
+
+    public int getRejectedCount() {
+        return rejected.size();
+    }
+
+    // Batch positions (0-based, in iteration order) of the records that passed validation
+    public List<Integer> getAccepted() {
+        return Collections.unmodifiableList(accepted);
+    }
+
+    // Validation errors keyed by batch position
+    public Map<Integer, List<String>> getRejected() {
+        return Collections.unmodifiableMap(rejected);
+    }
+
+    // True when at least one record was accepted and every accepted record was appended to the
+    // file; an empty batch, or one where every record was rejected, writes nothing
+    public boolean isWritten() {
+        return !accepted.isEmpty() && writeError == null;
+    }
+
+    public IOException getWriteError() {
+        return writeError;
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Bounded LRU cache in front of PrescriptionRepository lookups, keyed by prescription ID.
+// Front-desk traffic is dominated by recent patients, so the least recently used entry is
+// evicted once the cache holds capacity prescriptions. The cache is also an event sink:
+// installed with Prescription.setEventSink(PrescriptionEventSink.combine(..., cache)), every
+// successful prescription or remark write for an ID drops that ID's entry, and the next miss
+// brings the repository up to date with the file before reading it.
+// Cached Prescription objects are shared between callers and must not be modified.
+public class PrescriptionCache implements PrescriptionEventSink, PrescriptionCacheMXBean {
+    private final PrescriptionRepository repository;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Prescription> entries;
+    // Loads in progress; an invalidation removes the token so a stale load is not cached
+    private final Map<Integer, Object> loading = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // Prescription writes reported so far, and how many of them the repository has indexed.
+    // A counter rather than a flag, so a write reported during a refresh is not marked as indexed.
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong indexedWrites = new AtomicLong();
+
+    public PrescriptionCache(PrescriptionRepository repository, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1.");
+        }
+        this.repository = repository;
+        this.capacity = capacity;
+        // Access order turns the map's iteration order into recency order
+        this.entries = new LinkedHashMap<Integer, Prescription>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Prescription> eldest) {
+                if (size() > PrescriptionCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Latest record for the ID, or null when it is not in the file. Misses read through the
+    // repository outside the lock, so a slow disk read does not stall hits for other IDs.
+    public Prescription findById(int prescID) throws IOException {
+        Object token = new Object();
+        lock.lock();
+        try {
+            Prescription cached = entries.get(prescID);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            loading.put(prescID, token);
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        Prescription loaded;
+        try {
+            loaded = load(prescID);
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                loading.remove(prescID, token);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if (loading.remove(prescID, token) && loaded != null) {
+                entries.put(prescID, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    private Prescription load(int prescID) throws IOException {
+        long written = writes.get();
+        if (written != indexedWrites.get()) {
+            // Records were written since the last refresh; index them before reading. Only
+            // writes reported before the refresh started are known to be in the index.
+            repository.refresh();
+            indexedWrites.accumulateAndGet(written, Math::max);
+        }
+        Prescription loaded = repository.findById(prescID);
+        if (loaded == null && repository.refresh() > 0) {
+            // The ID may have been written by something that does not report to this cache
+            loaded = repository.findById(prescID);
+        }
+        return loaded;
+    }
+
+    // Drops the entry for the ID and abandons loads of it that are in flight
+    public void invalidate(int prescID) {
+        lock.lock();
+        try {
+            entries.remove(prescID);
+            loading.remove(prescID);
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    @Override
+    public void prescriptionAdded(int prescID) {
+        // Count the write first: a miss between the two would otherwise read the old index and cache the old record
+        writes.incrementAndGet();
+        invalidate(prescID);
+    }
+
+    // Remarks are part of the patient's record as callers see it, so they invalidate too
+    @Override
+    public void remarkAdded(int prescID) {
+        invalidate(prescID);
+    }
+
+    @Override
+    public int getSize() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    // Registers the cache on the platform MBean server as prescriptions:type=Cache,name=<name>
+    public void registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName("prescriptions:type=Cache,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register cache bean " + name + ": " + e.getMessage());
+        }
+    }
+}
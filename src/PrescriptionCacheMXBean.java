@@ -0,0 +1,16 @@
+// JMX view of a PrescriptionCache
+public interface PrescriptionCacheMXBean {
+    int getSize();
+
+    int getCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getInvalidations();
+
+    double getHitRate();
+}
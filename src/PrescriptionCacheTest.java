@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionCacheTest {
+
+    private Path file;
+    private PrescriptionRepository repository;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("presc-cache", ".txt");
+        RecordAppender appender = RecordAppender.forPath(file);
+        for (int id = 1; id <= 5; id++) {
+            appender.append(newPrescription(id, "Dr. Robert Smith").formatPrescription());
+        }
+        repository = PrescriptionRepository.open(file);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        repository.close();
+        RecordAppender.forPath(file).close();
+        Files.deleteIfExists(file);
+    }
+
+    private static Prescription newPrescription(int id, String optometrist) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist(optometrist);
+        return prescription;
+    }
+
+    @Test
+    public void test1_FindById_CountsHitsAndMisses() throws Exception {
+        PrescriptionCache cache = new PrescriptionCache(repository, 10);
+
+        Prescription first = cache.findById(1);
+        Prescription second = cache.findById(1);
+        assertSame(first, second, "Second lookup should be served from the cache");
+        assertNull(cache.findById(99));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+        assertEquals(1, cache.getSize(), "Unknown IDs should not be cached");
+    }
+
+    @Test
+    public void test2_FindById_EvictsLeastRecentlyUsed() throws Exception {
+        PrescriptionCache cache = new PrescriptionCache(repository, 2);
+        cache.findById(1);
+        cache.findById(2);
+        cache.findById(1); // 2 is now the least recently used
+        cache.findById(3);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        long misses = cache.getMisses();
+        cache.findById(1);
+        assertEquals(misses, cache.getMisses(), "Recently used entry should survive");
+        cache.findById(2);
+        assertEquals(misses + 1, cache.getMisses(), "Evicted entry should be reloaded");
+    }
+
+    @Test
+    public void test3_Write_InvalidatesAndServesNewVersion() throws Exception {
+        PrescriptionCache cache = new PrescriptionCache(repository, 10);
+        assertEquals("Dr. Robert Smith", cache.findById(2).getOptometrist());
+
+        RecordAppender.forPath(file).append(newPrescription(2, "Dr. Jane Doe").formatPrescription());
+        cache.prescriptionAdded(2);
+
+        assertEquals(1, cache.getInvalidations());
+        assertEquals("Dr. Jane Doe", cache.findById(2).getOptometrist(), "Lookup after a write should see it");
+    }
+
+    @Test
+    public void test4_FindById_FindsRecordsWrittenAfterOpen() throws Exception {
+        PrescriptionCache cache = new PrescriptionCache(repository, 10);
+        RecordAppender.forPath(file).append(newPrescription(6, "Dr. Jane Doe").formatPrescription());
+
+        Prescription added = cache.findById(6);
+        assertNotNull(added, "Repository should catch up with appended records");
+        assertEquals(6, repository.size());
+    }
+
+    @Test
+    public void test5_Repository_RebuildsAfterCompaction() throws Exception {
+        RecordAppender.forPath(file).append(newPrescription(1, "Dr. Jane Doe").formatPrescription());
+        repository.refresh();
+        new RecordCompactor(file, file.resolveSibling("unused-remarks.txt")).compactPrescriptions();
+
+        repository.refresh();
+        assertEquals(5, repository.size());
+        assertEquals("Dr. Jane Doe", repository.findById(1).getOptometrist());
+        assertEquals("Dr. Robert Smith", repository.findById(5).getOptometrist());
+    }
+
+    @Test
+    public void test6_ReadDuringWriteNotification_SeesNewVersion() throws Exception {
+        // A lookup that lands right after the entry is dropped, before the notification returns
+        PrescriptionCache cache = new PrescriptionCache(repository, 10) {
+            @Override
+            public void invalidate(int prescID) {
+                super.invalidate(prescID);
+                try {
+                    findById(prescID);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        assertEquals("Dr. Robert Smith", cache.findById(2).getOptometrist());
+
+        RecordAppender.forPath(file).append(newPrescription(2, "Dr. Jane Doe").formatPrescription());
+        cache.prescriptionAdded(2);
+
+        assertEquals("Dr. Jane Doe", cache.findById(2).getOptometrist(), "The old record should not be cached again");
+    }
+}
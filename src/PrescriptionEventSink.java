@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.util.List;
+
+// Receives the outcome of prescription and remark writes: validation failures, successful
+// writes and I/O failures. Prescription reports to the sink installed with
+// Prescription.setEventSink(); the default is NO_OP, so embedding code pays nothing for output
+// it does not consume. ConsoleEventSink prints the classic console messages and
+// AsyncLoggingEventSink moves logging off the calling thread.
+// Methods may be called from many threads at once and should return quickly.
+public interface PrescriptionEventSink {
+    PrescriptionEventSink NO_OP = new PrescriptionEventSink() {
+    };
+
+    // A sink that forwards every event to first and then to second; NO_OP sides are dropped,
+    // so combining with the default costs nothing
+    static PrescriptionEventSink combine(PrescriptionEventSink first, PrescriptionEventSink second) {
+        if (first == NO_OP) {
+            return second;
+        }
+        if (second == NO_OP) {
+            return first;
+        }
+        return new PrescriptionEventSink() {
+            @Override
+            public void prescriptionRejected(int prescID, List<String> errors) {
+                first.prescriptionRejected(prescID, errors);
+                second.prescriptionRejected(prescID, errors);
+            }
+
+            @Override
+            public void prescriptionAdded(int prescID) {
+                first.prescriptionAdded(prescID);
+                second.prescriptionAdded(prescID);
+            }
+
+            @Override
+            public void prescriptionWriteFailed(int prescID, IOException error) {
+                first.prescriptionWriteFailed(prescID, error);
+                second.prescriptionWriteFailed(prescID, error);
+            }
+
+            @Override
+            public void remarkRejected(int prescID, List<String> errors) {
+                first.remarkRejected(prescID, errors);
+                second.remarkRejected(prescID, errors);
+            }
+
+            @Override
+            public void remarkAdded(int prescID) {
+                first.remarkAdded(prescID);
+                second.remarkAdded(prescID);
+            }
+
+            @Override
+            public void remarkWriteFailed(int prescID, IOException error) {
+                first.remarkWriteFailed(prescID, error);
+                second.remarkWriteFailed(prescID, error);
+            }
+
+            @Override
+            public void writeFailed(String fileName, int records, IOException error) {
+                first.writeFailed(fileName, records, error);
+                second.writeFailed(fileName, records, error);
+            }
+        };
+    }
+
+    default void prescriptionRejected(int prescID, List<String> errors) {
+    }
+
+    default void prescriptionAdded(int prescID) {
+    }
+
+    default void prescriptionWriteFailed(int prescID, IOException error) {
+    }
+
+    default void remarkRejected(int prescID, List<String> errors) {
+    }
+
+    default void remarkAdded(int prescID) {
+    }
+
+    default void remarkWriteFailed(int prescID, IOException error) {
+    }
+
+    // A grouped write (batch or append log commit) of several records failed
+    default void writeFailed(String fileName, int records, IOException error) {
+    }
+}
@@ -0,0 +1,204 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionEventSinkTest {
+
+    // Records go to a scratch directory, not the presc.txt and remark.txt in the working directory
+    private Path directory;
+    private Path prescFile;
+    private Path remarkFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("event-sink");
+        prescFile = directory.resolve("presc.txt");
+        remarkFile = directory.resolve("remark.txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        RecordAppender.forPath(prescFile).close();
+        RecordAppender.forPath(remarkFile).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Prescription validPrescription(int id) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("Dr. Robert Smith");
+        return prescription;
+    }
+
+    // Records events as short strings
+    private static class RecordingSink implements PrescriptionEventSink {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void prescriptionRejected(int prescID, List<String> errors) {
+            events.add("rejected " + prescID + " " + errors.size());
+        }
+
+        @Override
+        public void prescriptionAdded(int prescID) {
+            events.add("added " + prescID);
+        }
+
+        @Override
+        public void remarkRejected(int prescID, List<String> errors) {
+            events.add("remark rejected " + prescID);
+        }
+
+        @Override
+        public void remarkAdded(int prescID) {
+            events.add("remark added " + prescID);
+        }
+    }
+
+    @Test
+    public void test1_AddPrescription_ReportsToInstalledSink() {
+        RecordingSink sink = new RecordingSink();
+        Prescription.setEventSink(sink);
+        try {
+            assertTrue(validPrescription(40).addPrescription(null, prescFile));
+
+            Prescription invalid = validPrescription(41);
+            invalid.setFirstName("Al");
+            invalid.setAxis(200.0f);
+            assertThrows(IllegalArgumentException.class, () -> invalid.addPrescription(null, prescFile));
+
+            Prescription remark = validPrescription(40);
+            remark.setRemarkType("Client");
+            remark.setRemarkText("This is a valid remark from the client.");
+            assertTrue(remark.addRemark(null, remarkFile));
+
+            assertEquals(List.of("added 40", "rejected 41 2", "remark added 40"), sink.events);
+        } finally {
+            Prescription.setEventSink(null);
+        }
+    }
+
+    @Test
+    public void test2_ConsoleEventSink_KeepsConsoleMessages() {
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        Prescription.setEventSink(new ConsoleEventSink());
+        try {
+            Prescription invalid = validPrescription(42);
+            invalid.setOptometrist("");
+            assertThrows(IllegalArgumentException.class, () -> invalid.addPrescription(null, prescFile));
+            assertTrue(validPrescription(43).addPrescription(null, prescFile));
+        } finally {
+            Prescription.setEventSink(null);
+            System.setOut(original);
+        }
+
+        String output = captured.toString();
+        assertTrue(output.contains("Please address the following issues before proceeding:"));
+        assertTrue(output.contains("- Optometrist name cannot be empty."));
+        assertTrue(output.contains("Prescription successfully added!"));
+    }
+
+    @Test
+    public void test3_DefaultSink_IsSilent() {
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            assertSame(PrescriptionEventSink.NO_OP, Prescription.getEventSink());
+            assertTrue(validPrescription(44).addPrescription(null, prescFile));
+        } finally {
+            System.setOut(original);
+        }
+        assertEquals("", captured.toString(), "Nothing should be printed without a sink");
+    }
+
+    @Test
+    public void test4_AsyncLoggingEventSink_LogsEveryEventFromManyThreads() throws Exception {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        AsyncLoggingEventSink sink = new AsyncLoggingEventSink(new PrintStream(captured, true), 1 << 16);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int base = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    sink.prescriptionAdded(base + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.prescriptionRejected(99, List.of("Please enter the first name.", "Axis value must be between 0 and 180."));
+        sink.close();
+
+        String[] lines = captured.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(8001, lines.length);
+        assertEquals(0, sink.getDropped());
+        assertTrue(lines[8000].endsWith("Prescription 99 rejected: Please enter the first name. | Axis value must be between 0 and 180."));
+    }
+
+    @Test
+    public void test5_AsyncLoggingEventSink_DropsInsteadOfBlockingWhenClosed() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        AsyncLoggingEventSink sink = new AsyncLoggingEventSink(new PrintStream(captured, true), 4);
+        sink.close();
+        sink.remarkAdded(1);
+        assertEquals(1, sink.getDropped());
+        assertEquals("", captured.toString());
+    }
+
+    @Test
+    public void test6_AsyncLoggingEventSink_CountsEveryEventPublishedDuringClose() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            AsyncLoggingEventSink sink = new AsyncLoggingEventSink(new PrintStream(captured, true), 1 << 16);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        sink.prescriptionAdded(i);
+                    }
+                });
+                threads[t].start();
+            }
+            sink.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Every event is either logged or counted as dropped
+            long logged = captured.toString(StandardCharsets.UTF_8).lines().filter(l -> l.endsWith(" added")).count();
+            assertEquals(8000, logged + sink.getDropped());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Write-time uniqueness check for prescription IDs.
+// Loaded once from presc.txt; afterwards every claimed ID is first screened by a Bloom filter,
+// so the common "new ID" case is answered from a few bits without probing the exact ID table.
+// Only Bloom hits are confirmed against the exact table.
+public class PrescriptionIdRegistry {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_BLOOM_CAPACITY = 1 << 20;
+
+    // What to do when a prescription is written with an ID that already exists
+    public enum DuplicatePolicy {
+        REJECT, // refuse the write
+        UPSERT  // append the new version; readers take the most recent record for an ID
+    }
+
+    private final DuplicatePolicy policy;
+    private final IntLongMap ids;
+    private BloomFilter bloom;
+
+    private PrescriptionIdRegistry(DuplicatePolicy policy, IntLongMap ids) {
+        this.policy = policy;
+        this.ids = ids;
+        rebuildBloom();
+    }
+
+    public static PrescriptionIdRegistry empty(DuplicatePolicy policy) {
+        return new PrescriptionIdRegistry(policy, new IntLongMap());
+    }
+
+    public static PrescriptionIdRegistry load(String fileName, DuplicatePolicy policy) throws IOException {
+        return load(Paths.get(fileName), policy);
+    }
+
+    // Builds the registry from every prescription ID already in the file or its archive, so an
+    // archived ID is not handed out again
+    public static PrescriptionIdRegistry load(Path path, DuplicatePolicy policy) throws IOException {
+        IntLongMap ids = new IntLongMap(1024);
+        if (Files.exists(path)) {
+            try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+                MappedRecordReader.Cursor cursor = reader.cursor();
+                while (cursor.next()) {
+                    if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                        ids.put(cursor.intValue(RecordField.PRESCRIPTION_ID), 0);
+                    }
+                }
+            }
+        }
+        Path archiveFile = PrescriptionArchive.pathFor(path);
+        if (Files.exists(archiveFile)) {
+            try (PrescriptionArchive archive = PrescriptionArchive.open(archiveFile)) {
+                archive.forEachId(id -> ids.put(id, 0));
+            }
+        }
+        return new PrescriptionIdRegistry(policy, ids);
+    }
+
+    public DuplicatePolicy getPolicy() {
+        return policy;
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized boolean contains(int prescID) {
+        return bloom.mightContain(prescID) && ids.containsKey(prescID);
+    }
+
+    // Records the ID for a write that is about to happen.
+    // Returns true for a new ID, false for an existing ID under UPSERT, and throws
+    // IllegalArgumentException for an existing ID under REJECT.
+    public synchronized boolean claim(int prescID) {
+        if (!bloom.mightContain(prescID)) {
+            add(prescID);
+            return true;
+        }
+        if (!ids.containsKey(prescID)) {
+            add(prescID); // Bloom false positive
+            return true;
+        }
+        if (policy == DuplicatePolicy.REJECT) {
+            throw new IllegalArgumentException(duplicateMessage(prescID));
+        }
+        return false;
+    }
+
+    // Undoes a claim for a new ID whose write failed. The Bloom filter keeps its bits,
+    // which only costs an extra exact lookup for that ID later.
+    public synchronized void release(int prescID) {
+        ids.remove(prescID);
+    }
+
+    static String duplicateMessage(int prescID) {
+        return "Prescription ID " + prescID + " already exists.";
+    }
+
+    private void add(int prescID) {
+        ids.put(prescID, 0);
+        bloom.add(prescID);
+        if (ids.size() > bloom.capacity()) {
+            rebuildBloom();
+        }
+    }
+
+    // Sizes the filter at twice the current ID count so it keeps its false-positive rate while growing
+    private void rebuildBloom() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(MIN_BLOOM_CAPACITY, 2L * ids.size()), FALSE_POSITIVE_RATE);
+        ids.forEach((id, ignored) -> rebuilt.add(id));
+        bloom = rebuilt;
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionIdRegistryTest {
+
+    @Test
+    public void test1_Claim_RejectPolicyRefusesDuplicates() {
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+
+        assertTrue(registry.claim(1), "First claim of an ID should succeed");
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            registry.claim(1);
+        });
+        assertTrue(exception.getMessage().contains("Prescription ID 1 already exists."),
+                "Exception message should name the duplicate ID");
+    }
+
+    @Test
+    public void test2_Claim_UpsertPolicyReportsExistingId() {
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.UPSERT);
+
+        assertTrue(registry.claim(5), "New ID should be reported as new");
+        assertFalse(registry.claim(5), "Existing ID should be reported as an update");
+    }
+
+    @Test
+    public void test3_ClaimAndRelease_ExactAcrossManyIds() {
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+        // Multiplying by an odd constant spreads the IDs without producing duplicates
+        int[] ids = new int[200_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 0x9E3779B1;
+            registry.claim(ids[i]);
+        }
+
+        // Test Data 1: Every claimed ID is known
+        for (int id : ids) {
+            assertTrue(registry.contains(id));
+        }
+
+        // Test Data 2: Released IDs can be claimed again and the others stay intact
+        for (int i = 0; i < ids.length; i += 2) {
+            registry.release(ids[i]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i % 2 == 1, registry.contains(ids[i]), "Only released IDs should be gone");
+        }
+        assertTrue(registry.claim(ids[0]), "Released ID should be claimable again");
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Secondary indexes over the latest record of each prescription ID: last name, optometrist and
+// examination date. Names are kept in sorted maps under their lower-case form, so exact and
+// prefix lookups are one sub-map walk; dates are keyed by epoch day for range lookups.
+// Each ID also remembers the keys it is filed under, so a newer record for the same ID moves it
+// instead of leaving a stale entry behind. Not thread-safe; PrescriptionRepository guards it.
+public class PrescriptionIndexes {
+    // IntLongMap values must be >= 0, so epoch days are stored shifted by this amount
+    private static final long DAY_BIAS = -(long) Integer.MIN_VALUE;
+
+    private final NavigableMap<String, IntLongMap> byLastName = new TreeMap<>();
+    private final NavigableMap<String, IntLongMap> byOptometrist = new TreeMap<>();
+    private final NavigableMap<Integer, IntLongMap> byDay = new TreeMap<>();
+
+    // Distinct lower-case names, so each ID stores two int codes instead of two strings
+    private StringDictionary names = new StringDictionary();
+    private final IntLongMap nameCodes = new IntLongMap(1024); // ID -> lastName code << 32 | optometrist code
+    private final IntLongMap days = new IntLongMap(1024);      // ID -> epoch day + DAY_BIAS
+
+    // Files the ID under the record's values, replacing whatever an earlier record filed it under
+    public void put(int prescID, String lastName, String optometrist, int epochDay) {
+        remove(prescID);
+        int lastNameCode = code(lastName);
+        int optometristCode = code(optometrist);
+        nameCodes.put(prescID, (long) lastNameCode << 32 | optometristCode);
+        days.put(prescID, epochDay + DAY_BIAS);
+        postings(byLastName, names.decode(lastNameCode)).put(prescID, 0);
+        postings(byOptometrist, names.decode(optometristCode)).put(prescID, 0);
+        if (epochDay != Prescription.NO_EPOCH_DAY) {
+            postings(byDay, epochDay).put(prescID, 0);
+        }
+    }
+
+    public void remove(int prescID) {
+        long previous = nameCodes.remove(prescID);
+        if (previous == IntLongMap.MISSING) {
+            return;
+        }
+        unfile(byLastName, names.decode((int) (previous >>> 32)), prescID);
+        unfile(byOptometrist, names.decode((int) previous), prescID);
+        unfile(byDay, (int) (days.remove(prescID) - DAY_BIAS), prescID);
+    }
+
+    public void clear() {
+        byLastName.clear();
+        byOptometrist.clear();
+        byDay.clear();
+        names = new StringDictionary();
+        nameCodes.clear();
+        days.clear();
+    }
+
+    // IDs whose last name equals the name (ignoring case), or starts with it when prefix is set;
+    // all results are sorted by ID
+    public int[] byLastName(String lastName, boolean prefix) {
+        return matching(byLastName, lastName, prefix);
+    }
+
+    public int[] byOptometrist(String optometrist, boolean prefix) {
+        return matching(byOptometrist, optometrist, prefix);
+    }
+
+    // IDs examined between the two epoch days, both inclusive
+    public int[] byExaminationDay(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        return collect(byDay.subMap(fromDay, true, toDay, true).values());
+    }
+
+    // IDs for the optometrist examined between the two epoch days. Walks whichever side has fewer
+    // postings and checks the other key per ID, so neither side is materialised in full.
+    public int[] byOptometristBetween(String optometrist, int fromDay, int toDay) {
+        int optometristCode = names.find(normalize(optometrist));
+        IntLongMap postings = optometristCode < 0 ? null : byOptometrist.get(names.decode(optometristCode));
+        if (postings == null || fromDay > toDay) {
+            return new int[0];
+        }
+        Collection<IntLongMap> dayPostings = byDay.subMap(fromDay, true, toDay, true).values();
+        int daySize = 0;
+        for (IntLongMap day : dayPostings) {
+            daySize += day.size();
+        }
+
+        int[] ids = new int[Math.min(postings.size(), daySize)];
+        int[] count = {0};
+        if (postings.size() <= daySize) {
+            postings.forEach((prescID, ignored) -> {
+                long day = days.get(prescID) - DAY_BIAS;
+                if (day >= fromDay && day <= toDay) {
+                    ids[count[0]++] = prescID;
+                }
+            });
+        } else {
+            for (IntLongMap day : dayPostings) {
+                day.forEach((prescID, ignored) -> {
+                    if ((int) nameCodes.get(prescID) == optometristCode) {
+                        ids[count[0]++] = prescID;
+                    }
+                });
+            }
+        }
+        int[] result = Arrays.copyOf(ids, count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static <K> IntLongMap postings(NavigableMap<K, IntLongMap> index, K key) {
+        return index.computeIfAbsent(key, k -> new IntLongMap(4));
+    }
+
+    private static <K> void unfile(NavigableMap<K, IntLongMap> index, K key, int prescID) {
+        IntLongMap postings = index.get(key);
+        if (postings != null) {
+            postings.remove(prescID);
+            if (postings.size() == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static int[] matching(NavigableMap<String, IntLongMap> index, String value, boolean prefix) {
+        String key = normalize(value);
+        if (prefix) {
+            // Every key that starts with the prefix sorts between it and prefix + U+FFFF
+            return collect(index.subMap(key, true, key + Character.MAX_VALUE, false).values());
+        }
+        IntLongMap postings = index.get(key);
+        return postings == null ? new int[0] : collect(List.of(postings));
+    }
+
+    private static int[] collect(Iterable<IntLongMap> postingLists) {
+        int size = 0;
+        for (IntLongMap postings : postingLists) {
+            size += postings.size();
+        }
+        int[] ids = new int[size];
+        int[] count = {0};
+        for (IntLongMap postings : postingLists) {
+            postings.forEach((prescID, ignored) -> ids[count[0]++] = prescID);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private int code(String value) {
+        return names.encode(normalize(value));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
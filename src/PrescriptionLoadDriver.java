@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local load driver for PrescriptionServer: simulates concurrent clinic terminals, each on a
+// virtual thread, submitting valid prescriptions one after another, and reports throughput,
+// latency percentiles and failures.
+// Usage: PrescriptionLoadDriver [terminals] [requests per terminal] [server url]
+// Without a URL an embedded server is started on a free port, writing to presc.txt and remark.txt
+// in a new temporary directory. Not a JUnit test, hence the name.
+public class PrescriptionLoadDriver {
+    public static void main(String[] args) throws Exception {
+        int terminals = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requestsPerTerminal = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+
+        PrescriptionServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            Path directory = Files.createTempDirectory("presc-load");
+            server = PrescriptionServer.start(new InetSocketAddress("localhost", 0),
+                    directory.resolve("presc.txt"), directory.resolve("remark.txt"),
+                    PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT), RemarkStore.empty());
+            url = "http://localhost:" + server.getPort();
+            System.out.println("Embedded server writes to " + directory);
+        }
+
+        try {
+            run(URI.create(url + "/prescriptions"), terminals, requestsPerTerminal);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static void run(URI uri, int terminals, int requestsPerTerminal) throws Exception {
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .executor(clientThreads)
+                     .build()) {
+            run(client, uri, terminals, requestsPerTerminal);
+        }
+    }
+
+    private static void run(HttpClient client, URI uri, int terminals, int requestsPerTerminal) throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder failures = new LongAdder();
+        // A random ID block per run so repeated runs do not collide with earlier records
+        int firstId = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE - terminals * requestsPerTerminal);
+
+        long start = System.nanoTime();
+        try (ExecutorService terminalThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>(terminals);
+            for (int t = 0; t < terminals; t++) {
+                int base = firstId + t * requestsPerTerminal;
+                running.add(terminalThreads.submit(() -> {
+                    for (int i = 0; i < requestsPerTerminal; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .timeout(Duration.ofSeconds(60))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(prescriptionJson(base + i)))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 201) {
+                                failures.increment();
+                            }
+                        } catch (IOException e) {
+                            failures.increment();
+                        }
+                        latency.record(System.nanoTime() - sent);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> terminal : running) {
+                terminal.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = latency.getCount();
+        System.out.printf("%d terminals x %d requests: %d requests in %.2f s (%.0f requests/s)%n",
+                terminals, requestsPerTerminal, total, seconds, total / seconds);
+        System.out.printf("Latency ms: p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                latency.getP50Nanos() / 1e6, latency.getP99Nanos() / 1e6,
+                latency.getP999Nanos() / 1e6, latency.getMaxNanos() / 1e6);
+        System.out.println("Failed requests: " + failures.sum());
+    }
+
+    private static String prescriptionJson(int id) {
+        return "{\"prescID\": " + id + ", \"firstName\": \"Alice\", \"lastName\": \"Johnson\", "
+                + "\"address\": \"123 Main Street, Springfield, IL 62704, USA\", "
+                + "\"sphere\": -5.0, \"cylinder\": -1.0, \"axis\": 90, "
+                + "\"examinationDate\": \"23/10/24\", \"optometrist\": \"Dr. Robert Smith\"}";
+    }
+}
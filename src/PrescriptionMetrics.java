@@ -0,0 +1,198 @@
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide instrumentation of the prescription and remark write paths: latency histograms
+// for the validate, serialize and write phases, rejection counters per validation rule, and
+// appends/bytes/append latency per record file. Everything is lock-free on the recording side.
+// The numbers can be read directly, through dump(), or over JMX once registerMBeans() is called.
+public final class PrescriptionMetrics implements PrescriptionMetricsMXBean {
+    private static final String DOMAIN = "prescriptions";
+    private static final PrescriptionMetrics GLOBAL = new PrescriptionMetrics();
+
+    public enum Phase {
+        PRESCRIPTION_VALIDATE("prescription.validate"),
+        PRESCRIPTION_SERIALIZE("prescription.serialize"),
+        PRESCRIPTION_WRITE("prescription.write"),
+        REMARK_VALIDATE("remark.validate"),
+        REMARK_SERIALIZE("remark.serialize"),
+        REMARK_WRITE("remark.write");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+    private final LongAdder[] ruleRejections = new LongAdder[PrescriptionValidator.RULE_COUNT];
+    private final ConcurrentMap<String, LongAdder> otherRejections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, FileStats> files = new ConcurrentHashMap<>();
+    private MBeanServer mbeanServer;
+
+    private PrescriptionMetrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < ruleRejections.length; i++) {
+            ruleRejections[i] = new LongAdder();
+        }
+    }
+
+    public static PrescriptionMetrics global() {
+        return GLOBAL;
+    }
+
+    // Records the time since startNanos for the phase and returns the current System.nanoTime(),
+    // so consecutive phases can be timed with one clock read each
+    public long recordSince(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phases[phase.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    public LatencyHistogram getLatency(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    // Counts every rule set in a PrescriptionValidator bitmask
+    public void recordRejections(int failedRules) {
+        while (failedRules != 0) {
+            ruleRejections[Integer.numberOfTrailingZeros(failedRules)].increment();
+            failedRules &= failedRules - 1;
+        }
+    }
+
+    // Counts a rejection for a rule outside PrescriptionValidator (remark rules, duplicate IDs)
+    public void recordRejection(String rule) {
+        otherRejections.computeIfAbsent(rule, r -> new LongAdder()).increment();
+    }
+
+    public long getRejectionCount(String rule) {
+        Long count = getRejectionCounts().get(rule);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public Map<String, Long> getRejectionCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < ruleRejections.length; i++) {
+            counts.put(PrescriptionValidator.ruleName(1 << i), ruleRejections[i].sum());
+        }
+        otherRejections.forEach((rule, count) -> counts.put(rule, count.sum()));
+        return counts;
+    }
+
+    // Statistics holder for one record file; RecordAppender keeps a reference so appends
+    // update it without a map lookup
+    FileStats fileStats(Path path) {
+        return files.computeIfAbsent(path, p -> {
+            FileStats stats = new FileStats();
+            synchronized (this) {
+                if (mbeanServer != null) {
+                    register(stats.appendLatency, "type=AppendLatency,file=" + ObjectName.quote(p.toString()));
+                }
+            }
+            return stats;
+        });
+    }
+
+    public long getBytesAppended(Path path) {
+        FileStats stats = files.get(path.toAbsolutePath().normalize());
+        return stats == null ? 0 : stats.bytes.sum();
+    }
+
+    @Override
+    public Map<String, Long> getBytesAppended() {
+        Map<String, Long> bytes = new TreeMap<>();
+        files.forEach((path, stats) -> bytes.put(path.toString(), stats.bytes.sum()));
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getAppendCounts() {
+        Map<String, Long> appends = new TreeMap<>();
+        files.forEach((path, stats) -> appends.put(path.toString(), stats.appends.sum()));
+        return appends;
+    }
+
+    // Registers this object and every histogram on the platform MBean server; safe to call repeatedly
+    public synchronized void registerMBeans() {
+        if (mbeanServer != null) {
+            return;
+        }
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        register(this, "type=Metrics");
+        for (Phase phase : Phase.values()) {
+            register(phases[phase.ordinal()], "type=Latency,phase=" + phase.getLabel());
+        }
+        files.forEach((path, stats) ->
+                register(stats.appendLatency, "type=AppendLatency,file=" + ObjectName.quote(path.toString())));
+    }
+
+    private void register(Object bean, String properties) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(bean, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics bean " + properties + ": " + e.getMessage());
+        }
+    }
+
+    // Plain-text report of every metric, for logs and the console
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %10s %10s %10s %10s %10s %10s%n",
+                "Latency (ns)", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (Phase phase : Phase.values()) {
+            appendLatency(out, phase.getLabel(), phases[phase.ordinal()]);
+        }
+
+        out.append(String.format("%nRejections%n"));
+        getRejectionCounts().forEach((rule, count) -> {
+            if (count > 0) {
+                out.append(String.format("  %-30s %10d%n", rule, count));
+            }
+        });
+
+        out.append(String.format("%nAppends%n"));
+        new TreeMap<>(files).forEach((path, stats) -> {
+            out.append(String.format("  %s: %d appends, %d bytes%n", path, stats.appends.sum(), stats.bytes.sum()));
+            appendLatency(out, "  append latency", stats.appendLatency);
+        });
+        return out.toString();
+    }
+
+    private static void appendLatency(StringBuilder out, String label, LatencyHistogram histogram) {
+        out.append(String.format("%-24s %10d %10.0f %10d %10d %10d %10d%n", label,
+                histogram.getCount(), histogram.getMeanNanos(), histogram.getP50Nanos(),
+                histogram.getP99Nanos(), histogram.getP999Nanos(), histogram.getMaxNanos()));
+    }
+
+    static final class FileStats {
+        final LongAdder appends = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LatencyHistogram appendLatency = new LatencyHistogram();
+
+        void recordAppend(int byteCount, long nanos) {
+            appends.increment();
+            bytes.add(byteCount);
+            appendLatency.record(nanos);
+        }
+    }
+}
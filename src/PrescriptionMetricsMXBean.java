@@ -0,0 +1,15 @@
+import java.util.Map;
+
+// JMX view of PrescriptionMetrics; per-phase latencies are registered as separate LatencyHistogram beans
+public interface PrescriptionMetricsMXBean {
+    // Rejections per validation rule name, e.g. firstNameLength or remarkWordCount
+    Map<String, Long> getRejectionCounts();
+
+    // Bytes appended per record file path
+    Map<String, Long> getBytesAppended();
+
+    // Append calls per record file path
+    Map<String, Long> getAppendCounts();
+
+    String dump();
+}
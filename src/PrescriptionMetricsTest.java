@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionMetricsTest {
+
+    @Test
+    public void test1_LatencyHistogram_PercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMeanNanos(), 0.001);
+        assertEquals(10_000, histogram.getMaxNanos());
+        // Reported percentiles are bucket upper bounds: never below the true value, at most 12.5% above
+        long p50 = histogram.percentile(50);
+        long p99 = histogram.percentile(99);
+        assertTrue(p50 >= 5000 && p50 <= 5000 * 1.125, "p50 was " + p50);
+        assertTrue(p99 >= 9900 && p99 <= 10_000, "p99 was " + p99);
+        assertEquals(10_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void test2_LatencyHistogram_BucketsCoverFullRange() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value, "Upper bound below value " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value, "Value " + value + " in wrong bucket");
+            }
+        }
+    }
+
+    @Test
+    public void test3_AddPrescription_CountsRejectionsPerRule() {
+        PrescriptionMetrics metrics = PrescriptionMetrics.global();
+        long firstNameBefore = metrics.getRejectionCount("firstNameLength");
+        long sphereBefore = metrics.getRejectionCount("sphereRange");
+        long axisBefore = metrics.getRejectionCount("axisRange");
+
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(30);
+        prescription.setFirstName("Al");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(25.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("Dr. Robert Smith");
+        assertThrows(IllegalArgumentException.class, prescription::addPrescription);
+
+        assertEquals(firstNameBefore + 1, metrics.getRejectionCount("firstNameLength"));
+        assertEquals(sphereBefore + 1, metrics.getRejectionCount("sphereRange"));
+        assertEquals(axisBefore, metrics.getRejectionCount("axisRange"), "Passing rules should not be counted");
+    }
+
+    @Test
+    public void test4_AddRemark_CountsRejectionsAndPhases() {
+        PrescriptionMetrics metrics = PrescriptionMetrics.global();
+        long wordCountBefore = metrics.getRejectionCount("remarkWordCount");
+        long validateBefore = metrics.getLatency(PrescriptionMetrics.Phase.REMARK_VALIDATE).getCount();
+
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(31);
+        prescription.setRemarkType("Client");
+        prescription.setRemarkText("Too short.");
+        assertThrows(IllegalArgumentException.class, prescription::addRemark);
+
+        assertEquals(wordCountBefore + 1, metrics.getRejectionCount("remarkWordCount"));
+        assertEquals(validateBefore + 1, metrics.getLatency(PrescriptionMetrics.Phase.REMARK_VALIDATE).getCount());
+    }
+
+    @Test
+    public void test5_RecordAppender_CountsBytesPerFile() throws Exception {
+        Path file = Files.createTempFile("metrics", ".txt");
+        try {
+            RecordAppender appender = RecordAppender.forPath(file);
+            appender.append("Prescription ID: 1\n\n");
+            appender.append("Prescription ID: 2\n\n");
+            appender.close();
+
+            PrescriptionMetrics metrics = PrescriptionMetrics.global();
+            assertEquals(Files.size(file), metrics.getBytesAppended(file));
+            assertEquals(2L, metrics.getAppendCounts().get(appender.getPath().toString()));
+            assertTrue(metrics.dump().contains(appender.getPath().toString()), "Dump should list the file");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void test6_RegisterMBeans_ExposesMetricsOverJmx() throws Exception {
+        PrescriptionMetrics.global().registerMBeans();
+        PrescriptionMetrics.global().registerMBeans(); // Repeated registration is harmless
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName metrics = new ObjectName("prescriptions:type=Metrics");
+        assertTrue(server.isRegistered(metrics));
+        assertNotNull(server.getAttribute(metrics, "RejectionCounts"));
+        assertTrue(server.isRegistered(new ObjectName("prescriptions:type=Latency,phase=prescription.write")));
+    }
+}
@@ -0,0 +1,272 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Read path over presc.txt. The file is scanned once to build a prescription ID -> byte offset
+// index; findById() then seeks straight to the record instead of scanning the file.
+// When an ID was written more than once, the most recently appended record wins.
+// refresh() catches the index up with records appended since, and rebuilds it when the file
+// was replaced (e.g. by RecordCompactor). Lookups may run concurrently with each other;
+// refresh() excludes them while it updates the index. A refresh that fails part way, on an I/O
+// error or a record that cannot be read, leaves the index as it was before the refresh.
+// Secondary indexes on last name, optometrist and examination date are built in the same pass
+// (see PrescriptionIndexes). Their queries first catch up with any records appended since the
+// last scan, so prescriptions written through addPrescription() show up without a full rescan.
+public class PrescriptionRepository implements Closeable {
+    private static final int RECORD_READ_SIZE = 512;
+
+    private final Path path;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private Object fileKey;
+    private IntLongMap index;
+    private PrescriptionIndexes indexes;
+    private volatile long indexedEnd;
+
+    private PrescriptionRepository(Path path) {
+        this.path = path;
+    }
+
+    public static PrescriptionRepository open(String fileName) throws IOException {
+        return open(Paths.get(fileName));
+    }
+
+    public static PrescriptionRepository open(Path path) throws IOException {
+        PrescriptionRepository repository = new PrescriptionRepository(path);
+        repository.rebuild();
+        return repository;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Number of distinct prescription IDs in the file
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int prescID) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(prescID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the latest record for the ID, or null when the ID is not in the index
+    public Prescription findById(int prescID) throws IOException {
+        lock.readLock().lock();
+        try {
+            long offset = index.get(prescID);
+            if (offset == IntLongMap.MISSING) {
+                return null;
+            }
+            return Prescription.parsePrescription(readBlock(offset));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Latest records whose last name equals the name, ignoring case, sorted by ID
+    public List<Prescription> findByLastName(String lastName) throws IOException {
+        return query(() -> indexes.byLastName(lastName, false));
+    }
+
+    public List<Prescription> findByLastNamePrefix(String prefix) throws IOException {
+        return query(() -> indexes.byLastName(prefix, true));
+    }
+
+    public List<Prescription> findByOptometrist(String optometrist) throws IOException {
+        return query(() -> indexes.byOptometrist(optometrist, false));
+    }
+
+    // Examined between the two dates, both inclusive
+    public List<Prescription> findByExaminationDate(LocalDate from, LocalDate to) throws IOException {
+        return query(() -> indexes.byExaminationDay(epochDay(from), epochDay(to)));
+    }
+
+    public List<Prescription> findByOptometrist(String optometrist, LocalDate from, LocalDate to) throws IOException {
+        return query(() -> indexes.byOptometristBetween(optometrist, epochDay(from), epochDay(to)));
+    }
+
+    // Indexes records appended since the last scan and returns how many were read; when the
+    // file has been replaced the whole index is rebuilt from the new file
+    public int refresh() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Object currentKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            long end = RecordAppender.forPath(path).size();
+            if ((currentKey != null && !currentKey.equals(fileKey)) || end < indexedEnd) {
+                return rebuild();
+            }
+            if (end <= indexedEnd) {
+                return 0;
+            }
+            // Staged, so a record that cannot be read leaves the index unchanged
+            List<Entry> appended = new ArrayList<>();
+            scan(indexedEnd, end, (prescID, offset, lastName, optometrist, epochDay) ->
+                    appended.add(new Entry(prescID, offset, lastName, optometrist, epochDay)));
+            for (Entry entry : appended) {
+                index.put(entry.prescID, entry.offset);
+                indexes.put(entry.prescID, entry.lastName, entry.optometrist, entry.epochDay);
+            }
+            indexedEnd = end;
+            return appended.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Opens the file and indexes it from the start. The new index is built on the side and only
+    // replaces the current one, and the current channel, once the whole file has been read.
+    private int rebuild() throws IOException {
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.READ);
+        Object openedKey;
+        long end;
+        IntLongMap rebuiltIndex = new IntLongMap(1024);
+        PrescriptionIndexes rebuiltIndexes = new PrescriptionIndexes();
+        int records;
+        try {
+            openedKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            end = RecordAppender.forPath(path).size();
+            records = scan(0, end, (prescID, offset, lastName, optometrist, epochDay) -> {
+                rebuiltIndex.put(prescID, offset);
+                rebuiltIndexes.put(prescID, lastName, optometrist, epochDay);
+            });
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+
+        FileChannel previous = channel;
+        channel = opened;
+        fileKey = openedKey;
+        index = rebuiltIndex;
+        indexes = rebuiltIndexes;
+        indexedEnd = end;
+        if (previous != null) {
+            previous.close();
+        }
+        return records;
+    }
+
+    // Catches up with appends, then loads the matching IDs' records under one read lock
+    private List<Prescription> query(Supplier<int[]> lookup) throws IOException {
+        if (RecordAppender.forPath(path).size() != indexedEnd) {
+            refresh();
+        }
+        lock.readLock().lock();
+        try {
+            int[] ids = lookup.get();
+            List<Prescription> prescriptions = new ArrayList<>(ids.length);
+            for (int prescID : ids) {
+                prescriptions.add(Prescription.parsePrescription(readBlock(index.get(prescID))));
+            }
+            return prescriptions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int epochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    // Reads the record block starting at offset, up to the blank line that terminates it
+    private String readBlock(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_READ_SIZE);
+        while (true) {
+            int read = channel.read(buffer, offset + buffer.position());
+            int end = findBlockEnd(buffer.array(), buffer.position());
+            if (end >= 0 || read < 0 || buffer.hasRemaining()) {
+                int length = end >= 0 ? end : buffer.position();
+                return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+            }
+            // Record is longer than the buffer; grow and keep reading
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    private static int findBlockEnd(byte[] bytes, int length) {
+        for (int i = 1; i < length; i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private interface EntryVisitor {
+        void visit(int prescID, long offset, String lastName, String optometrist, int epochDay);
+    }
+
+    // Single pass over [start, end) of the mapped file handing the offset of every prescription
+    // block, and the fields the secondary indexes need, to the visitor. Only those fields are
+    // decoded. end comes from RecordAppender.size(), so a record that is still being written is
+    // never indexed half-way.
+    private int scan(long start, long end, EntryVisitor visitor) throws IOException {
+        int records = 0;
+        try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+            MappedRecordReader.Cursor cursor = reader.cursor(start, end);
+            while (cursor.next()) {
+                if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    visitor.visit(cursor.intValue(RecordField.PRESCRIPTION_ID), cursor.offset(),
+                            cursor.text(RecordField.LAST_NAME), cursor.text(RecordField.OPTOMETRIST),
+                            cursor.epochDayValue(RecordField.EXAMINATION_DATE));
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    // One record found by an incremental scan, held until the whole range has been read
+    private static final class Entry {
+        final int prescID;
+        final long offset;
+        final String lastName;
+        final String optometrist;
+        final int epochDay;
+
+        Entry(int prescID, long offset, String lastName, String optometrist, int epochDay) {
+            this.prescID = prescID;
+            this.offset = offset;
+            this.lastName = lastName;
+            this.optometrist = optometrist;
+            this.epochDay = epochDay;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionRepositoryTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("presc-repo", ".txt");
+        String records = newPrescription(1, "Alice").formatPrescription()
+                + newPrescription(2, "Edward").formatPrescription()
+                + newPrescription(1, "Alicia").formatPrescription();
+        Files.write(file, records.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void test1_FindById_ReturnsLatestRecord() throws Exception {
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            assertEquals(2, repository.size(), "Repository should index two distinct IDs");
+
+            // Test Data 1: Duplicate ID resolves to the most recent record
+            Prescription first = repository.findById(1);
+            assertNotNull(first, "ID 1 should be found");
+            assertEquals("Alicia", first.getFirstName(), "Latest record for ID 1 should win");
+
+            // Test Data 2: Every field round-trips through the file
+            Prescription second = repository.findById(2);
+            assertEquals(2, second.getPrescID());
+            assertEquals("Edward", second.getFirstName());
+            assertEquals("Paulson", second.getLastName());
+            assertEquals(-5.0f, second.getSphere());
+            assertEquals(-1.0f, second.getCylinder());
+            assertEquals(90.0f, second.getAxis());
+            assertNotNull(second.getExaminationDate(), "Examination date should be parsed");
+            assertEquals("doctor Raghav", second.getOptometrist());
+        }
+    }
+
+    @Test
+    public void test2_FindById_UnknownIdReturnsNull() throws Exception {
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            assertNull(repository.findById(42), "Unknown ID should not be found");
+            assertFalse(repository.contains(42));
+        }
+    }
+
+    @Test
+    public void test3_FindByLastName_ExactAndPrefixIgnoreCase() throws Exception {
+        Files.write(file, (newPrescription(3, "Anna", "Johnson", "Dr. Smith", LocalDate.of(2024, 3, 1)).formatPrescription()
+                + newPrescription(4, "Ben", "Johnston", "Dr. Smith", LocalDate.of(2024, 3, 15)).formatPrescription()
+                + newPrescription(5, "Cara", "Jones", "Dr. Brown", LocalDate.of(2024, 4, 2)).formatPrescription())
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            assertEquals(List.of(3), ids(repository.findByLastName("JOHNSON")));
+            assertEquals(List.of(3, 4), ids(repository.findByLastNamePrefix("john")));
+            assertEquals(List.of(3, 4, 5), ids(repository.findByLastNamePrefix("Jo")));
+            assertEquals(List.of(1, 2), ids(repository.findByLastName("paulson")), "Duplicate ID should appear once");
+            assertTrue(repository.findByLastNamePrefix("X").isEmpty());
+        }
+    }
+
+    @Test
+    public void test4_FindByOptometristAndDate_Ranges() throws Exception {
+        Files.write(file, (newPrescription(3, "Anna", "Johnson", "Dr. Smith", LocalDate.of(2024, 3, 1)).formatPrescription()
+                + newPrescription(4, "Ben", "Johnston", "Dr. Smith", LocalDate.of(2024, 3, 31)).formatPrescription()
+                + newPrescription(5, "Cara", "Jones", "Dr. Smith", LocalDate.of(2024, 4, 1)).formatPrescription()
+                + newPrescription(6, "Dan", "Jones", "Dr. Brown", LocalDate.of(2024, 3, 10)).formatPrescription())
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            LocalDate from = LocalDate.of(2024, 3, 1);
+            LocalDate to = LocalDate.of(2024, 3, 31);
+            assertEquals(List.of(3, 4, 5), ids(repository.findByOptometrist("dr. smith")));
+            assertEquals(List.of(3, 4, 6), ids(repository.findByExaminationDate(from, to)), "Range bounds are inclusive");
+            assertEquals(List.of(3, 4), ids(repository.findByOptometrist("Dr. Smith", from, to)));
+            assertTrue(repository.findByExaminationDate(to, from).isEmpty());
+        }
+    }
+
+    @Test
+    public void test5_SecondaryIndexes_FollowAppendsAndRewrites() throws Exception {
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            assertTrue(repository.findByOptometrist("Dr. Brown").isEmpty());
+
+            RecordAppender appender = RecordAppender.forPath(file);
+            appender.append(newPrescription(7, "Eve", "Stone", "Dr. Brown", LocalDate.of(2024, 5, 5)).formatPrescription());
+            appender.append(newPrescription(2, "Edward", "Stone", "Dr. Brown", LocalDate.of(2024, 5, 6)).formatPrescription());
+
+            assertEquals(List.of(2, 7), ids(repository.findByOptometrist("Dr. Brown")), "Queries should catch up with appends");
+            assertEquals(List.of(1), ids(repository.findByLastName("Paulson")), "Rewritten ID should leave its old name");
+            assertEquals(List.of(2), ids(repository.findByExaminationDate(LocalDate.of(2024, 5, 6), LocalDate.of(2024, 5, 6))));
+        } finally {
+            RecordAppender.forPath(file).close();
+        }
+    }
+
+    @Test
+    public void test6_Refresh_FailureLeavesIndexUnchanged() throws Exception {
+        String unreadable = "Prescription ID: 9x\nFirst Name: Broken\n\n";
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            // Test Data 1: A readable record followed by one whose ID cannot be read
+            Files.write(file, (newPrescription(3, "Carol").formatPrescription() + unreadable)
+                    .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertThrows(NumberFormatException.class, repository::refresh);
+            assertEquals(2, repository.size(), "Nothing from the failed refresh should be indexed");
+            assertNull(repository.findById(3));
+            assertEquals("Alicia", repository.findById(1).getFirstName());
+
+            // Test Data 2: The file is rewritten shorter, so refresh rebuilds, and the rebuild fails
+            Files.write(file, (newPrescription(4, "Daniel").formatPrescription() + unreadable)
+                    .getBytes(StandardCharsets.UTF_8));
+            assertThrows(NumberFormatException.class, repository::refresh);
+            assertEquals(2, repository.size(), "The old index should be kept");
+            assertFalse(repository.contains(4));
+        } finally {
+            RecordAppender.forPath(file).close();
+        }
+    }
+
+    private static List<Integer> ids(List<Prescription> prescriptions) {
+        return prescriptions.stream().map(Prescription::getPrescID).collect(Collectors.toList());
+    }
+
+    private static Prescription newPrescription(int id, String firstName, String lastName, String optometrist,
+                                                LocalDate examined) {
+        Prescription prescription = newPrescription(id, firstName);
+        prescription.setLastName(lastName);
+        prescription.setOptometrist(optometrist);
+        prescription.setExaminationDate(Date.from(examined.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        return prescription;
+    }
+
+    private static Prescription newPrescription(int id, String firstName) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName(firstName);
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+        return prescription;
+    }
+}
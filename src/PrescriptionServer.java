@@ -0,0 +1,294 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Embedded HTTP front end for prescription and remark submissions.
+//   POST /prescriptions  {"prescID": 1, "firstName": "...", ..., "examinationDate": "dd/MM/yy", ...}
+//   GET  /prescriptions/{id}  the latest record for the ID (when started with a cache)
+//   POST /remarks        {"prescID": 1, "remarkType": "Client", "remarkText": "..."}
+//   GET  /metrics        PrescriptionMetrics.dump() as text
+// Field names match the bulk import feed. Every exchange runs on its own virtual thread, so a
+// request blocked on the record file lock or the disk parks cheaply instead of holding a
+// platform thread, and thousands of terminals can be served concurrently. Submissions go
+// through addPrescription()/addRemark(), so the rules, duplicate-ID and remark-limit checks
+// are the same as on the console; those rules also reject line breaks and other control
+// characters in every text field, which would otherwise forge or split records in the files.
+// Responses are JSON: {"ok":true,"prescID":n} on success, or {"ok":false,"errors":[...]} with
+// 400 for invalid input, 409 for a duplicate prescription ID and 500 when the write failed.
+public class PrescriptionServer implements AutoCloseable {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int BACKLOG = 4096;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yy");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path prescFile;
+    private final Path remarkFile;
+    private final PrescriptionIdRegistry registry;
+    private final RemarkStore remarkStore;
+    private final PrescriptionCache cache;
+
+    private PrescriptionServer(HttpServer server, ExecutorService executor, Path prescFile, Path remarkFile,
+                               PrescriptionIdRegistry registry, RemarkStore remarkStore, PrescriptionCache cache) {
+        this.server = server;
+        this.executor = executor;
+        this.prescFile = prescFile;
+        this.remarkFile = remarkFile;
+        this.registry = registry;
+        this.remarkStore = remarkStore;
+        this.cache = cache;
+    }
+
+    // Starts serving on the address; port 0 picks a free port (see getPort()). Submissions are
+    // appended to prescFile and remarkFile, which the registry and the remark store describe.
+    public static PrescriptionServer start(InetSocketAddress address, Path prescFile, Path remarkFile,
+                                           PrescriptionIdRegistry registry, RemarkStore remarkStore) throws IOException {
+        return start(address, prescFile, remarkFile, registry, remarkStore, null);
+    }
+
+    // With a cache, GET /prescriptions/{id} serves lookups through it
+    public static PrescriptionServer start(InetSocketAddress address, Path prescFile, Path remarkFile,
+                                           PrescriptionIdRegistry registry, RemarkStore remarkStore,
+                                           PrescriptionCache cache) throws IOException {
+        HttpServer server = HttpServer.create(address, BACKLOG);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        PrescriptionServer prescriptionServer = new PrescriptionServer(server, executor, prescFile, remarkFile,
+                registry, remarkStore, cache);
+        HttpHandler submit = prescriptionServer.post(prescriptionServer::addPrescription);
+        server.createContext("/prescriptions", exchange -> {
+            if (cache != null && exchange.getRequestMethod().equals("GET")) {
+                prescriptionServer.findPrescription(exchange);
+            } else {
+                submit.handle(exchange);
+            }
+        });
+        server.createContext("/remarks", prescriptionServer.post(prescriptionServer::addRemark));
+        server.createContext("/metrics", PrescriptionServer::metrics);
+        server.setExecutor(executor);
+        server.start();
+        return prescriptionServer;
+    }
+
+    // Usage: PrescriptionServer [port]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        Path prescFile = Paths.get("presc.txt");
+        Path remarkFile = Paths.get("remark.txt");
+        // Cut off any record torn by a crash before the indexes below read the files
+        for (Path file : List.of(prescFile, remarkFile)) {
+            RecordRecovery.Report recovery = RecordRecovery.recover(file);
+            if (recovery.getDroppedBytes() > 0) {
+                System.out.println(recovery);
+            }
+        }
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.load(prescFile,
+                PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+        RemarkStore remarkStore = RemarkStore.load(remarkFile);
+        if (Files.notExists(prescFile)) {
+            Files.createFile(prescFile);
+        }
+        PrescriptionCache cache = new PrescriptionCache(PrescriptionRepository.open(prescFile), 10_000);
+        PrescriptionMetrics.global().registerMBeans();
+        cache.registerMBean("presc.txt");
+        // Log outcomes without making request threads wait on the console; the cache drops
+        // entries as their prescriptions and remarks are written
+        Prescription.setEventSink(PrescriptionEventSink.combine(new AsyncLoggingEventSink(), cache));
+
+        PrescriptionServer server = start(new InetSocketAddress(port), prescFile, remarkFile, registry, remarkStore, cache);
+        System.out.println("Accepting prescriptions on http://localhost:" + server.getPort() + "/prescriptions");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting connections and waits for requests in flight
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private interface Submission {
+        void handle(Map<String, String> fields, HttpExchange exchange) throws IOException;
+    }
+
+    // Common POST handling: method check, body size limit, JSON parsing and unexpected failures
+    private HttpHandler post(Submission submission) {
+        return exchange -> {
+            try (exchange) {
+                try {
+                    handlePost(submission, exchange);
+                } catch (RuntimeException e) {
+                    // Answered before try (exchange) closes the exchange; once the status line has
+                    // gone out, closing it is the only option left
+                    if (exchange.getResponseCode() == -1) {
+                        respond(exchange, 500, errors(List.of("Unexpected error: " + e)));
+                    }
+                }
+            }
+        };
+    }
+
+    private static void handlePost(Submission submission, HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, errors(List.of("Use POST to submit records.")));
+            return;
+        }
+        byte[] body = readBody(exchange.getRequestBody());
+        if (body == null) {
+            respond(exchange, 413, errors(List.of("Request body exceeds " + MAX_BODY_BYTES + " bytes.")));
+            return;
+        }
+        Map<String, String> fields;
+        try {
+            fields = FlatJson.parseObject(new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, errors(List.of("Request body is not a valid JSON object: " + e.getMessage())));
+            return;
+        }
+        submission.handle(fields, exchange);
+    }
+
+    private void addPrescription(Map<String, String> fields, HttpExchange exchange) throws IOException {
+        List<String> errorList = new ArrayList<>();
+        Prescription prescription = Prescription.fromFields(fields, errorList);
+        if (!errorList.isEmpty()) {
+            // Report the unparsable fields together with every other rule the input breaks
+            errorList.addAll(prescription.validatePrescription());
+            respond(exchange, 400, errors(errorList));
+            return;
+        }
+
+        try {
+            if (!prescription.addPrescription(registry, prescFile)) {
+                respond(exchange, 500, errors(List.of("The prescription could not be saved.")));
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            List<String> errors = Arrays.asList(e.getMessage().split("\n"));
+            boolean duplicate = errors.contains(PrescriptionIdRegistry.duplicateMessage(prescription.getPrescID()));
+            respond(exchange, duplicate ? 409 : 400, errors(errors));
+            return;
+        }
+        respond(exchange, 201, saved(prescription.getPrescID()));
+    }
+
+    private void addRemark(Map<String, String> fields, HttpExchange exchange) throws IOException {
+        Prescription prescription = new Prescription();
+        try {
+            prescription.setPrescID(Integer.parseInt(String.valueOf(fields.get("prescID")).trim()));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, errors(List.of("Invalid input. Prescription ID must be an integer.")));
+            return;
+        }
+        prescription.setRemarkType(fields.get("remarkType"));
+        prescription.setRemarkText(fields.get("remarkText"));
+
+        try {
+            if (!prescription.addRemark(remarkStore, remarkFile)) {
+                respond(exchange, 500, errors(List.of("The remark could not be saved.")));
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, errors(Arrays.asList(e.getMessage().split("\n"))));
+            return;
+        }
+        respond(exchange, 201, saved(prescription.getPrescID()));
+    }
+
+    private void findPrescription(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            int prescID;
+            try {
+                prescID = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, errors(List.of("Use GET /prescriptions/{id} with an integer ID.")));
+                return;
+            }
+            Prescription prescription = cache.findById(prescID);
+            if (prescription == null) {
+                respond(exchange, 404, errors(List.of("Prescription ID " + prescID + " was not found.")));
+                return;
+            }
+            respond(exchange, 200, fields(prescription));
+        }
+    }
+
+    private static Map<String, Object> fields(Prescription prescription) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("prescID", prescription.getPrescID());
+        body.put("firstName", prescription.getFirstName());
+        body.put("lastName", prescription.getLastName());
+        body.put("address", prescription.getAddress());
+        body.put("sphere", prescription.getSphere());
+        body.put("cylinder", prescription.getCylinder());
+        body.put("axis", prescription.getAxis());
+        Date date = prescription.getExaminationDate();
+        body.put("examinationDate", date == null ? null
+                : DATE_FORMAT.format(date.toInstant().atZone(ZoneId.systemDefault())));
+        body.put("optometrist", prescription.getOptometrist());
+        return body;
+    }
+
+    private static void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = PrescriptionMetrics.global().dump().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, Object> saved(int prescID) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", true);
+        body.put("prescID", prescID);
+        return body;
+    }
+
+    private static Map<String, Object> errors(List<String> errors) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ok", false);
+        body.put("errors", errors);
+        return body;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = FlatJson.object(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // The request body, or null when it is larger than MAX_BODY_BYTES
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+}
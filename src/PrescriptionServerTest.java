@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionServerTest {
+
+    private Path directory;
+    private Path prescFile;
+    private Path remarkFile;
+    private PrescriptionServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("presc-server");
+        prescFile = directory.resolve("presc.txt");
+        remarkFile = directory.resolve("remark.txt");
+        server = PrescriptionServer.start(new InetSocketAddress("localhost", 0), prescFile, remarkFile,
+                PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT), RemarkStore.empty());
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.close();
+        client.close();
+        RecordAppender.forPath(prescFile).close();
+        RecordAppender.forPath(remarkFile).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpResponse<String> send(String path, String json) throws Exception {
+        return client.send(post(path, json), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String prescriptionJson(int id, String firstName, String sphere) {
+        return "{\"prescID\": " + id + ", \"firstName\": \"" + firstName + "\", \"lastName\": \"Johnson\", "
+                + "\"address\": \"123 Main Street, Springfield, IL 62704, USA\", "
+                + "\"sphere\": " + sphere + ", \"cylinder\": -1.0, \"axis\": 90, "
+                + "\"examinationDate\": \"23/10/24\", \"optometrist\": \"Dr. Robert Smith\"}";
+    }
+
+    @Test
+    public void test1_PostPrescription_CreatedThenDuplicateConflict() throws Exception {
+        HttpResponse<String> created = send("/prescriptions", prescriptionJson(500, "Alice", "-5.0"));
+        assertEquals(201, created.statusCode());
+        assertEquals("{\"ok\":true,\"prescID\":500}", created.body());
+
+        HttpResponse<String> duplicate = send("/prescriptions", prescriptionJson(500, "Alice", "-5.0"));
+        assertEquals(409, duplicate.statusCode());
+        assertTrue(duplicate.body().contains("Prescription ID 500 already exists."));
+    }
+
+    @Test
+    public void test2_PostPrescription_ReturnsEveryError() throws Exception {
+        HttpResponse<String> response = send("/prescriptions", prescriptionJson(501, "Al", "\"abc\""));
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().startsWith("{\"ok\":false,\"errors\":["));
+        assertTrue(response.body().contains("Sphere value must be a number (float)."));
+        assertTrue(response.body().contains("First name must be between 4 and 15 characters long."));
+    }
+
+    @Test
+    public void test3_PostRemark_EnforcesLimitAndRules() throws Exception {
+        String remark = "{\"prescID\": 502, \"remarkType\": \"Client\", \"remarkText\": \"This is a valid remark from the client.\"}";
+        assertEquals(201, send("/remarks", remark).statusCode());
+        assertEquals(201, send("/remarks", remark).statusCode());
+
+        HttpResponse<String> third = send("/remarks", remark);
+        assertEquals(400, third.statusCode());
+        assertTrue(third.body().contains("You can only add up to 2 remarks."));
+
+        HttpResponse<String> invalid = send("/remarks", "{\"prescID\": 503, \"remarkType\": \"Client\", \"remarkText\": \"too short\"}");
+        assertEquals(400, invalid.statusCode());
+        assertTrue(invalid.body().contains("Remark must be between 6 and 20 words."));
+    }
+
+    @Test
+    public void test4_BadRequests_AreRejected() throws Exception {
+        assertEquals(400, send("/prescriptions", "not json").statusCode());
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + server.getPort() + "/prescriptions")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, get.statusCode());
+    }
+
+    @Test
+    public void test5_ConcurrentSubmissions_AllSucceed() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int id = 10_000; id < 10_500; id++) {
+            responses.add(client.sendAsync(post("/prescriptions", prescriptionJson(id, "Alice", "-5.0")),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.get().statusCode());
+        }
+    }
+
+    @Test
+    public void test6_LineBreaksInFields_AreRejected() throws Exception {
+        // An escaped blank line would otherwise end the record and start a forged one
+        HttpResponse<String> prescription = send("/prescriptions",
+                prescriptionJson(504, "Alice\\n\\nPrescription ID: 9999", "-5.0"));
+        assertEquals(400, prescription.statusCode());
+        assertTrue(prescription.body().contains("Text fields cannot contain line breaks or other control characters."));
+
+        HttpResponse<String> remark = send("/remarks", "{\"prescID\": 505, \"remarkType\": \"Client\", "
+                + "\"remarkText\": \"This is a valid remark\\nfrom the client.\"}");
+        assertEquals(400, remark.statusCode());
+        assertTrue(remark.body().contains("Remark fields cannot contain line breaks or other control characters."));
+
+        HttpResponse<String> type = send("/remarks", "{\"prescID\": 505, \"remarkType\": \"Client\\r\", "
+                + "\"remarkText\": \"This is a valid remark from the client.\"}");
+        assertEquals(400, type.statusCode());
+    }
+
+    @Test
+    public void test7_UnexpectedFailure_Returns500() throws Exception {
+        // The record is written, then the sink fails after the write
+        Prescription.setEventSink(new PrescriptionEventSink() {
+            @Override
+            public void prescriptionAdded(int prescID) {
+                throw new IllegalStateException("sink failed");
+            }
+        });
+        try {
+            HttpResponse<String> response = send("/prescriptions", prescriptionJson(506, "Alice", "-5.0"));
+            assertEquals(500, response.statusCode());
+            assertTrue(response.body().contains("Unexpected error: java.lang.IllegalStateException: sink failed"));
+        } finally {
+            Prescription.setEventSink(null);
+        }
+    }
+
+    @Test
+    public void test8_Submissions_GoToTheConfiguredFiles() throws Exception {
+        assertEquals(201, send("/prescriptions", prescriptionJson(507, "Alice", "-5.0")).statusCode());
+        assertEquals(201, send("/remarks", "{\"prescID\": 507, \"remarkType\": \"Client\", "
+                + "\"remarkText\": \"This is a valid remark from the client.\"}").statusCode());
+
+        assertTrue(Files.readString(prescFile).contains("Prescription ID: 507"));
+        assertTrue(Files.readString(remarkFile).contains("Prescription ID: 507"));
+    }
+}
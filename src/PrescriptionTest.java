@@ -3,7 +3,12 @@ import org.junit.jupiter.api.Test;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -571,4 +576,127 @@ public class PrescriptionTest {
         assertTrue(exception2.getMessage().contains("Remark text cannot be empty."),
                 "Exception message should contain missing remark text error");
     }
+
+
+    @Test
+    public void test13_AddPrescriptions_BatchReportsPerRecordErrors() {
+        // Test Data 1: Valid record
+        prescription.setFirstName("Nixon");
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+
+        // Test Data 2: Invalid record (axis out of range)
+        Prescription invalid = new Prescription();
+        invalid.setPrescID(2);
+        invalid.setFirstName("Nixon");
+        invalid.setLastName("Paulson");
+        invalid.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        invalid.setSphere(-5.00f);
+        invalid.setCylinder(-1.00f);
+        invalid.setAxis(200.0f);
+        invalid.setExaminationDate(new Date());
+        invalid.setOptometrist("doctor Raghav");
+
+        PrescriptionBatchResult result = Prescription.addPrescriptions(Arrays.asList(prescription, invalid));
+
+        assertEquals(1, result.getAcceptedCount(), "Valid record should be accepted");
+        assertEquals(1, result.getRejectedCount(), "Invalid record should be rejected");
+        assertTrue(result.getRejected().get(1).contains("Axis value must be between 0 and 180."),
+                "Rejected record should carry its axis range error");
+        assertTrue(result.isWritten(), "Accepted records should be written");
+
+        // Test Data 3: Nothing is written for an empty batch or one where every record is rejected
+        assertFalse(Prescription.addPrescriptions(Collections.emptyList()).isWritten());
+        assertFalse(Prescription.addPrescriptions(Collections.singletonList(invalid)).isWritten());
+    }
+
+    @Test
+    public void test14_AddPrescriptionAsync_CompletesAfterGroupCommit() throws Exception {
+        prescription.setFirstName("Nixon");
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+
+        try (AppendLogWriter writer = new AppendLogWriter()) {
+            // Test Data 1: Valid prescription is written by the background thread
+            assertTrue(prescription.addPrescriptionAsync(writer).get(5, TimeUnit.SECONDS),
+                    "Valid prescription should complete with true");
+
+            // Test Data 2: Valid remark is written by the background thread
+            prescription.setRemarkType("client");
+            prescription.setRemarkText("This is a valid remark from the client.");
+            assertTrue(prescription.addRemarkAsync(writer).get(5, TimeUnit.SECONDS),
+                    "Valid remark should complete with true");
+
+            // Test Data 3: Invalid remark is still rejected on the calling thread
+            prescription.setRemarkText("Too short.");
+            Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+                prescription.addRemarkAsync(writer);
+            });
+            assertTrue(exception.getMessage().contains("Remark must be between 6 and 20 words."),
+                    "Exception message should contain remark text length error");
+        }
+    }
+
+    @Test
+    public void test15_AddPrescription_DuplicateIdRejectedByRegistry() {
+        PrescriptionIdRegistry registry = PrescriptionIdRegistry.empty(PrescriptionIdRegistry.DuplicatePolicy.REJECT);
+
+        prescription.setPrescID(901);
+        prescription.setFirstName("Nixon");
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+
+        // Test Data 1: First write of the ID succeeds
+        assertDoesNotThrow(() -> {
+            assertTrue(prescription.addPrescription(registry), "New ID should be written");
+        });
+
+        // Test Data 2: Second write of the same ID is rejected
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            prescription.addPrescription(registry);
+        });
+        assertTrue(exception.getMessage().contains("Prescription ID 901 already exists."),
+                "Exception message should contain duplicate ID error");
+    }
+
+    @Test
+    public void test16_AddRemarkAsync_LimitEnforcedByStore() throws Exception {
+        RemarkStore store = RemarkStore.empty();
+        prescription.setPrescID(902);
+        prescription.setRemarkType("client");
+        prescription.setRemarkText("This is a valid remark from the client.");
+
+        // Test Data 1: A write that fails gives its slot back
+        AppendLogWriter closed = new AppendLogWriter();
+        closed.close();
+        CompletableFuture<Boolean> failed = prescription.addRemarkAsync(closed, store);
+        assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals(0, store.count(902), "Failed write should release its slot");
+
+        // Test Data 2: A prescription whose slots are taken is rejected before anything is queued
+        assertTrue(store.tryReserve(902));
+        assertTrue(store.tryReserve(902));
+        Prescription other = new Prescription();
+        other.setPrescID(902);
+        other.setRemarkType("optometrist");
+        other.setRemarkText("Follow up in six months to recheck the axis.");
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> other.addRemarkAsync(closed, store));
+        assertEquals("You can only add up to 2 remarks.", exception.getMessage());
+        assertEquals(2, store.count(902));
+    }
 }
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Prescription validation rules, compiled once and shared by every caller.
+// validate() checks a prescription without allocating and returns a bitmask with one bit per
+// failed rule (0 when valid); the error messages are only rendered, by messages(), when a
+// caller actually needs them. The validator holds no mutable state and is thread-safe.
+public final class PrescriptionValidator {
+    public static final int FIRST_NAME_MISSING = 1;
+    public static final int FIRST_NAME_LENGTH = 1 << 1;
+    public static final int LAST_NAME_MISSING = 1 << 2;
+    public static final int LAST_NAME_LENGTH = 1 << 3;
+    public static final int ADDRESS_MISSING = 1 << 4;
+    public static final int ADDRESS_LENGTH = 1 << 5;
+    public static final int SPHERE_RANGE = 1 << 6;
+    public static final int CYLINDER_RANGE = 1 << 7;
+    public static final int AXIS_RANGE = 1 << 8;
+    public static final int EXAMINATION_DATE_MISSING = 1 << 9;
+    public static final int OPTOMETRIST_MISSING = 1 << 10;
+    public static final int OPTOMETRIST_LENGTH = 1 << 11;
+    public static final int CONTROL_CHARACTERS = 1 << 12;
+    public static final int RULE_COUNT = 13;
+
+    public static final PrescriptionValidator DEFAULT = new PrescriptionValidator();
+
+    private static final int MIN_NAME_LENGTH = 4;
+    private static final int MAX_NAME_LENGTH = 15;
+    private static final int MIN_ADDRESS_LENGTH = 20;
+    private static final float MIN_SPHERE = -20.00f;
+    private static final float MAX_SPHERE = 20.00f;
+    private static final float MIN_CYLINDER = -4.00f;
+    private static final float MAX_CYLINDER = 4.00f;
+    private static final float MIN_AXIS = 0.0f;
+    private static final float MAX_AXIS = 180.0f;
+    private static final int MIN_OPTOMETRIST_LENGTH = 8;
+    private static final int MAX_OPTOMETRIST_LENGTH = 25;
+
+    // Indexed by rule bit position, in the order addPrescription() has always reported them
+    private static final String[] MESSAGES = {
+            "Please enter the first name.",
+            "First name must be between 4 and 15 characters long.",
+            "Please enter the last name.",
+            "Last name must be between 4 and 15 characters long.",
+            "Address cannot be empty.",
+            "Address should be at least 20 characters long.",
+            "Sphere value must be between -20.00 and 20.00.",
+            "Cylinder value must be between -4.00 and 4.00.",
+            "Axis value must be between 0 and 180.",
+            "Please provide a valid examination date in the format dd/MM/yy.",
+            "Optometrist name cannot be empty.",
+            "Optometrist name must be between 8 and 25 characters long.",
+            "Text fields cannot contain line breaks or other control characters."
+    };
+
+    // Short rule names for metrics and logs, indexed like MESSAGES
+    private static final String[] NAMES = {
+            "firstNameMissing",
+            "firstNameLength",
+            "lastNameMissing",
+            "lastNameLength",
+            "addressMissing",
+            "addressLength",
+            "sphereRange",
+            "cylinderRange",
+            "axisRange",
+            "examinationDateMissing",
+            "optometristMissing",
+            "optometristLength",
+            "controlCharacters"
+    };
+
+    private PrescriptionValidator() {
+    }
+
+    // Returns the bitmask of failed rules; 0 means the prescription is valid
+    public int validate(Prescription prescription) {
+        int failed = 0;
+
+        failed |= checkLength(prescription.getFirstName(), MIN_NAME_LENGTH, MAX_NAME_LENGTH,
+                FIRST_NAME_MISSING, FIRST_NAME_LENGTH);
+        failed |= checkLength(prescription.getLastName(), MIN_NAME_LENGTH, MAX_NAME_LENGTH,
+                LAST_NAME_MISSING, LAST_NAME_LENGTH);
+        failed |= checkLength(prescription.getAddress(), MIN_ADDRESS_LENGTH, Integer.MAX_VALUE,
+                ADDRESS_MISSING, ADDRESS_LENGTH);
+
+        float sphere = prescription.getSphere();
+        if (sphere < MIN_SPHERE || sphere > MAX_SPHERE) {
+            failed |= SPHERE_RANGE;
+        }
+        float cylinder = prescription.getCylinder();
+        if (cylinder < MIN_CYLINDER || cylinder > MAX_CYLINDER) {
+            failed |= CYLINDER_RANGE;
+        }
+        float axis = prescription.getAxis();
+        if (axis < MIN_AXIS || axis > MAX_AXIS) {
+            failed |= AXIS_RANGE;
+        }
+
+        if (prescription.getExaminationDate() == null) {
+            failed |= EXAMINATION_DATE_MISSING;
+        }
+
+        failed |= checkLength(prescription.getOptometrist(), MIN_OPTOMETRIST_LENGTH, MAX_OPTOMETRIST_LENGTH,
+                OPTOMETRIST_MISSING, OPTOMETRIST_LENGTH);
+
+        // A line break would end the field's line, or the whole record at a blank line, in presc.txt
+        if (hasControlCharacter(prescription.getFirstName()) || hasControlCharacter(prescription.getLastName())
+                || hasControlCharacter(prescription.getAddress()) || hasControlCharacter(prescription.getOptometrist())) {
+            failed |= CONTROL_CHARACTERS;
+        }
+
+        return failed;
+    }
+
+    // Renders the messages for every failed rule in the mask
+    public List<String> messages(int failed) {
+        List<String> errorList = new ArrayList<>(Integer.bitCount(failed));
+        for (int rule = 0; rule < RULE_COUNT; rule++) {
+            if ((failed & (1 << rule)) != 0) {
+                errorList.add(MESSAGES[rule]);
+            }
+        }
+        return errorList;
+    }
+
+    // Message for a single rule bit
+    public static String message(int rule) {
+        return MESSAGES[Integer.numberOfTrailingZeros(rule)];
+    }
+
+    // Name for a single rule bit
+    public static String ruleName(int rule) {
+        return NAMES[Integer.numberOfTrailingZeros(rule)];
+    }
+
+    private static int checkLength(String value, int min, int max, int missingRule, int lengthRule) {
+        if (value == null || isBlank(value)) {
+            return missingRule;
+        }
+        int length = value.length();
+        return length < min || length > max ? lengthRule : 0;
+    }
+
+    // True for CR, LF, tab and every other ISO control character; null has none
+    static boolean hasControlCharacter(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isISOControl(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same result as value.trim().isEmpty(), without creating the trimmed copy
+    static boolean isBlank(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
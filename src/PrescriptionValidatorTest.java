@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrescriptionValidatorTest {
+
+    private final PrescriptionValidator validator = PrescriptionValidator.DEFAULT;
+    private Prescription prescription;
+
+    @BeforeEach
+    public void setUp() {
+        prescription = new Prescription();
+        prescription.setPrescID(1);
+        prescription.setFirstName("Nixon");
+        prescription.setLastName("Paulson");
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setSphere(-5.00f);
+        prescription.setCylinder(-1.00f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("doctor Raghav");
+    }
+
+    @Test
+    public void test1_Validate_ValidPrescriptionHasNoFailedRules() {
+        assertEquals(0, validator.validate(prescription), "Valid prescription should fail no rules");
+        assertTrue(validator.messages(0).isEmpty(), "No messages should be rendered for a valid prescription");
+    }
+
+    @Test
+    public void test2_Validate_ReportsEveryFailedRuleInOrder() {
+        // Test Data: blank first name, short address, cylinder and axis out of range, no date
+        prescription.setFirstName("   ");
+        prescription.setAddress("Short Address");
+        prescription.setCylinder(5.00f);
+        prescription.setAxis(-1.0f);
+        prescription.setExaminationDate(null);
+
+        int failed = validator.validate(prescription);
+        assertEquals(PrescriptionValidator.FIRST_NAME_MISSING | PrescriptionValidator.ADDRESS_LENGTH
+                        | PrescriptionValidator.CYLINDER_RANGE | PrescriptionValidator.AXIS_RANGE
+                        | PrescriptionValidator.EXAMINATION_DATE_MISSING, failed);
+        assertEquals(Arrays.asList(
+                "Please enter the first name.",
+                "Address should be at least 20 characters long.",
+                "Cylinder value must be between -4.00 and 4.00.",
+                "Axis value must be between 0 and 180.",
+                "Please provide a valid examination date in the format dd/MM/yy."),
+                validator.messages(failed));
+    }
+
+    @Test
+    public void test3_IsBlank_MatchesTrimSemantics() {
+        String[] samples = {"", " ", "\t\n", "\u0001 ", " a ", " ", "Nixon"};
+        for (String sample : samples) {
+            assertEquals(sample.trim().isEmpty(), PrescriptionValidator.isBlank(sample),
+                    "isBlank should agree with trim().isEmpty()");
+        }
+    }
+
+    @Test
+    public void test4_Validate_RejectsControlCharactersInTextFields() {
+        prescription.setAddress("12 Main Street, Springfield\n\nPrescription ID: 999");
+        assertEquals(PrescriptionValidator.CONTROL_CHARACTERS, validator.validate(prescription));
+        assertEquals(Arrays.asList("Text fields cannot contain line breaks or other control characters."),
+                validator.messages(PrescriptionValidator.CONTROL_CHARACTERS));
+
+        prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+        prescription.setOptometrist("doctor\rRaghav");
+        assertEquals(PrescriptionValidator.CONTROL_CHARACTERS, validator.validate(prescription));
+        prescription.setOptometrist("doctor\u0000Raghav");
+        assertEquals(PrescriptionValidator.CONTROL_CHARACTERS, validator.validate(prescription));
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Shared append channel for one record file (presc.txt, remark.txt, ...).
+// Every record is serialized into a single buffer up front and written under the appender's
+// lock, so a record block from one thread can never interleave with a block from another.
+// All writers in the process obtain the same instance for a file through forFile().
+// appendRecords() is the path for text record blocks: each block gets a checksum trailer (see
+// RecordChecksum), and every CHECKPOINT_INTERVAL bytes the file is forced to disk and its size
+// saved as a checkpoint, so RecordRecovery only has to check what was written after it.
+public class RecordAppender {
+    private static final ConcurrentMap<Path, RecordAppender> APPENDERS = new ConcurrentHashMap<>();
+    private static final long CHECKPOINT_INTERVAL = 4L * 1024 * 1024;
+
+    private final Path path;
+    private final PrescriptionMetrics.FileStats stats;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private FileChannel channel;
+    private long sinceCheckpoint;
+
+    private RecordAppender(Path path) {
+        this.path = path;
+        this.stats = PrescriptionMetrics.global().fileStats(path);
+    }
+
+    public static RecordAppender forFile(String fileName) {
+        return forPath(Paths.get(fileName));
+    }
+
+    public static RecordAppender forPath(Path path) {
+        return APPENDERS.computeIfAbsent(path.toAbsolutePath().normalize(), RecordAppender::new);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Runs the listener after every successful append, replacement or truncation of the file, on
+    // the writing thread and outside the lock; it should only signal, e.g. wake a reader
+    public void addAppendListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeAppendListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // Appends one or more complete records as a single write
+    public void append(String records) throws IOException {
+        append(records.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void append(byte[] records) throws IOException {
+        append(records, false);
+    }
+
+    // force: also flush the file contents to the storage device before returning
+    public void append(byte[] records, boolean force) throws IOException {
+        append(records, force, false);
+    }
+
+    // Appends complete text record blocks, each framed with its checksum trailer
+    public void appendRecords(String records) throws IOException {
+        appendRecords(records.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    public void appendRecords(byte[] records, boolean force) throws IOException {
+        append(RecordChecksum.frame(records), force, true);
+    }
+
+    private void append(byte[] records, boolean force, boolean checkpoint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        // Timed from before the lock, so contention shows up in the append latency as well as disk stalls
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            FileChannel out = openChannel();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            if (force) {
+                out.force(false);
+            }
+            stats.recordAppend(records.length, System.nanoTime() - start);
+            if (checkpoint) {
+                sinceCheckpoint += records.length;
+                if (sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                    checkpoint(out);
+                }
+            }
+        } catch (IOException e) {
+            // Drop the channel so the next append starts from a fresh handle
+            closeChannel();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        notifyListeners();
+    }
+
+    // Current file size, taken under the lock so it always falls on a record boundary
+    public long size() throws IOException {
+        lock.lock();
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Swaps in a rewritten copy of the file's first snapshotSize bytes. Records appended since
+    // that snapshot are copied onto the end of the replacement under the lock, so no append is
+    // lost, and the replacement is moved over the file atomically. The next append reopens the
+    // channel on the new file.
+    void replaceWith(Path replacement, long snapshotSize) throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(replacement, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long size = source.size();
+                long position = snapshotSize;
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                target.force(true);
+            }
+            Files.move(replacement, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The old checkpoint offset means nothing in the new file; the new file is on disk in full
+            RecordRecovery.writeCheckpoint(path, Files.size(path));
+            sinceCheckpoint = 0;
+        } finally {
+            lock.unlock();
+        }
+        notifyListeners();
+    }
+
+    // Closes the shared channel; the next append reopens it
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cuts the file back to size; for RecordRecovery, before anything else appends to it
+    void truncate(long size) throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(size);
+                out.force(true);
+            }
+            sinceCheckpoint = 0;
+        } finally {
+            lock.unlock();
+        }
+        notifyListeners();
+    }
+
+    // Everything up to the current end is forced to disk before the checkpoint names it. A failed
+    // checkpoint only means a longer recovery, so the records just written still count as appended.
+    private void checkpoint(FileChannel out) {
+        try {
+            out.force(false);
+            RecordRecovery.writeCheckpoint(path, out.size());
+            sinceCheckpoint = 0;
+        } catch (IOException e) {
+            // Retried after the next append
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // The channel is being discarded after a failed write anyway
+        }
+        channel = null;
+    }
+}
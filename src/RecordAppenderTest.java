@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordAppenderTest {
+
+    private static final int WRITER_THREADS = 32;
+    private static final int RECORDS_PER_THREAD = 250;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("presc-stress", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        RecordAppender.forPath(file).close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void test1_ConcurrentAppends_NoInterleavedRecords() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(WRITER_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Every thread writes records whose ID and first name both identify the writing thread,
+        // so a block mixing lines from two threads is detectable
+        for (int t = 0; t < WRITER_THREADS; t++) {
+            final int thread = t;
+            writers.add(pool.submit(() -> {
+                Prescription prescription = new Prescription();
+                prescription.setPrescID(thread);
+                prescription.setFirstName("Writer" + thread);
+                prescription.setLastName("Paulson");
+                prescription.setAddress("apptNo.,apptName,CityName,StateName,CoutnryName,PIN");
+                prescription.setSphere(-5.00f);
+                prescription.setCylinder(-1.00f);
+                prescription.setAxis(90.0f);
+                prescription.setExaminationDate(new Date());
+                prescription.setOptometrist("doctor Raghav");
+                String record = prescription.formatPrescription();
+
+                start.await();
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    RecordAppender.forPath(file).append(record);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        String[] blocks = content.split("\n\n");
+        assertEquals(WRITER_THREADS * RECORDS_PER_THREAD, blocks.length, "Every record should form one block");
+
+        int[] perThread = new int[WRITER_THREADS];
+        for (String block : blocks) {
+            String[] lines = block.split("\n");
+            assertEquals(9, lines.length, "Each block should contain exactly nine lines");
+            assertTrue(lines[0].startsWith("Prescription ID: "), "Block should start with the prescription ID");
+            assertTrue(lines[8].startsWith("Optometrist: "), "Block should end with the optometrist");
+
+            int thread = Integer.parseInt(lines[0].substring("Prescription ID: ".length()));
+            assertEquals("First Name: Writer" + thread, lines[1], "Lines of a block should come from one writer");
+            perThread[thread]++;
+        }
+
+        for (int count : perThread) {
+            assertEquals(RECORDS_PER_THREAD, count, "Every record of every writer should be present");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+// Checksum trailer for text record blocks. frame() ends every block with one more line,
+//   Checksum: <length> <crc32c>
+// where length is the byte count of the block before that line and crc32c (hex) covers the same
+// bytes. Readers that look fields up by label skip the line; RecordRecovery uses it to tell a
+// complete record from a torn or corrupted one.
+public final class RecordChecksum {
+    static final String LABEL = "Checksum: ";
+    private static final byte[] LABEL_BYTES = LABEL.getBytes(StandardCharsets.US_ASCII);
+
+    public enum Status {
+        VALID,
+        UNFRAMED, // Written before checksums were added; cannot be checked
+        CORRUPT
+    }
+
+    private RecordChecksum() {
+    }
+
+    // Adds the trailer line to every block in records, which are complete blocks each ending in a
+    // blank line. Blocks that already end in a trailer are copied unchanged.
+    public static byte[] frame(byte[] records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.length + 64);
+        int pos = 0;
+        while (pos < records.length) {
+            int start = pos;
+            // Separating blank lines are copied as they are
+            while (pos < records.length && records[pos] == '\n') {
+                pos++;
+            }
+            out.write(records, start, pos - start);
+            if (pos == records.length) {
+                break;
+            }
+
+            int blockStart = pos;
+            int blockEnd = blockEnd(records, blockStart);
+            out.write(records, blockStart, blockEnd - blockStart);
+            if (!endsWithTrailer(records, blockStart, blockEnd)) {
+                out.writeBytes(trailer(records, blockStart, blockEnd - blockStart));
+            }
+            pos = blockEnd;
+        }
+        return out.toByteArray();
+    }
+
+    // Checks one block as returned by MappedRecordReader.Cursor.bytes(): its lines including the
+    // newline of the last one, without the blank line after it
+    public static Status verify(byte[] block) {
+        int length = block.length;
+        if (length == 0 || block[length - 1] != '\n') {
+            return Status.CORRUPT;
+        }
+        int lastLine = lastLineStart(block, 0, length);
+        if (!startsWith(block, lastLine, LABEL_BYTES)) {
+            return Status.UNFRAMED;
+        }
+        String[] parts = new String(block, lastLine + LABEL_BYTES.length,
+                length - 1 - lastLine - LABEL_BYTES.length, StandardCharsets.US_ASCII).split(" ");
+        try {
+            if (parts.length == 2 && Integer.parseInt(parts[0]) == lastLine
+                    && Long.parseLong(parts[1], 16) == crc(block, 0, lastLine)) {
+                return Status.VALID;
+            }
+        } catch (NumberFormatException e) {
+            // A damaged trailer is as bad as a damaged body
+        }
+        return Status.CORRUPT;
+    }
+
+    private static byte[] trailer(byte[] bytes, int offset, int length) {
+        return (LABEL + length + " " + Long.toHexString(crc(bytes, offset, length)) + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long crc(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+
+    // End of the block starting at start: just past the newline of its last line, i.e. at its
+    // terminating blank line or the end of the input. A block missing its final newline gets none.
+    private static int blockEnd(byte[] bytes, int start) {
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == '\n' && (i + 1 == bytes.length || bytes[i + 1] == '\n')) {
+                return i + 1;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static boolean endsWithTrailer(byte[] bytes, int start, int end) {
+        return startsWith(bytes, lastLineStart(bytes, start, end), LABEL_BYTES);
+    }
+
+    // Start of the last line in [start, end), where end follows that line's newline
+    private static int lastLineStart(byte[] bytes, int start, int end) {
+        int i = end - 2;
+        while (i >= start && bytes[i] != '\n') {
+            i--;
+        }
+        return i + 1;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        if (offset + prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Compaction for the append-only presc.txt and remark.txt.
+// Prescriptions keep only the latest record per ID, in the order those latest records were
+// written. Remarks are merged per prescription - grouped together in order of each ID's first
+// remark - and exact duplicates (same ID, type and text) are dropped.
+// Compaction runs alongside live appends: the file is rewritten up to a snapshot of its size
+// without holding any lock, and RecordAppender.replaceWith() then copies the records appended
+// in the meantime and swaps the compacted file in atomically. Readers that already have the file
+// open (PrescriptionRepository, MappedRecordReader) keep seeing the old contents until reopened.
+public class RecordCompactor implements AutoCloseable {
+    private final Path prescriptionFile;
+    private final Path remarkFile;
+    private ScheduledExecutorService scheduler;
+
+    public RecordCompactor(Path prescriptionFile, Path remarkFile) {
+        this.prescriptionFile = prescriptionFile;
+        this.remarkFile = remarkFile;
+    }
+
+    // Compacts presc.txt and remark.txt in the working directory once
+    public static void main(String[] args) {
+        RecordCompactor compactor = new RecordCompactor(Paths.get("presc.txt"), Paths.get("remark.txt"));
+        try {
+            System.out.println("presc.txt: " + compactor.compactPrescriptions());
+            System.out.println("remark.txt: " + compactor.compactRemarks());
+        } catch (IOException e) {
+            System.err.println("An error occurred while compacting: " + e.getMessage());
+        }
+    }
+
+    public Result compactPrescriptions() throws IOException {
+        return compact(prescriptionFile, RecordCompactor::planPrescriptions);
+    }
+
+    public Result compactRemarks() throws IOException {
+        return compact(remarkFile, RecordCompactor::planRemarks);
+    }
+
+    // Compacts both files every interval on a background daemon thread until close()
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Compaction is already scheduled.");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "record-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops scheduled compaction and waits for a run in progress to finish
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    private void compactQuietly() {
+        try {
+            compactPrescriptions();
+            compactRemarks();
+        } catch (IOException | RuntimeException e) {
+            // Keep the schedule alive; the next run starts from the file as it is then
+            System.err.println("An error occurred while compacting: " + e.getMessage());
+        }
+    }
+
+    private interface Planner {
+        Plan plan(MappedRecordReader reader, long end) throws IOException;
+    }
+
+    private static Result compact(Path file, Planner planner) throws IOException {
+        if (!Files.exists(file)) {
+            return new Result(0, 0, 0, 0);
+        }
+        RecordAppender appender = RecordAppender.forPath(file);
+        // One compaction per file at a time; appends only take the appender's lock
+        synchronized (appender) {
+            long snapshot = appender.size();
+            Plan plan;
+            try (MappedRecordReader reader = MappedRecordReader.open(file)) {
+                plan = planner.plan(reader, snapshot);
+            }
+            if (plan.size == plan.records) {
+                // Nothing superseded or duplicated; leave the file alone
+                return new Result(plan.records, plan.records, snapshot, snapshot);
+            }
+
+            Path temp = file.resolveSibling(file.getFileName() + ".compact");
+            try {
+                long compactedSize = plan.writeTo(file, temp);
+                appender.replaceWith(temp, snapshot);
+                return new Result(plan.records, plan.size, snapshot, compactedSize);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    // Latest record per prescription ID, in the order the latest records were written
+    static Plan planPrescriptions(MappedRecordReader reader, long end) throws IOException {
+        IntLongMap latest = new IntLongMap(1024);
+        MappedRecordReader.Cursor cursor = reader.cursor(0, end);
+        long records = 0;
+        while (cursor.next()) {
+            records++;
+            if (cursor.has(RecordField.PRESCRIPTION_ID)) {
+                latest.put(cursor.intValue(RecordField.PRESCRIPTION_ID), cursor.offset());
+            }
+        }
+
+        Plan plan = new Plan(records);
+        cursor = reader.cursor(0, end);
+        while (cursor.next()) {
+            if (cursor.has(RecordField.PRESCRIPTION_ID)
+                    && latest.get(cursor.intValue(RecordField.PRESCRIPTION_ID)) == cursor.offset()) {
+                plan.add(cursor.offset(), cursor.length());
+            }
+        }
+        return plan;
+    }
+
+    // Remarks grouped per prescription in order of first appearance, exact duplicates dropped
+    static Plan planRemarks(MappedRecordReader reader, long end) throws IOException {
+        Map<Integer, Plan> byId = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        MappedRecordReader.Cursor cursor = reader.cursor(0, end);
+        long records = 0;
+        while (cursor.next()) {
+            records++;
+            if (!cursor.has(RecordField.PRESCRIPTION_ID)) {
+                continue;
+            }
+            Remark remark = cursor.toRemark();
+            if (seen.add(remark.getPrescID() + "\n" + remark.getRemarkType() + "\n" + remark.getRemarkText())) {
+                byId.computeIfAbsent(remark.getPrescID(), id -> new Plan(0)).add(cursor.offset(), cursor.length());
+            }
+        }
+
+        Plan plan = new Plan(records);
+        for (Plan remarks : byId.values()) {
+            for (int i = 0; i < remarks.size; i++) {
+                plan.add(remarks.offsets[i], remarks.lengths[i]);
+            }
+        }
+        return plan;
+    }
+
+    // Record blocks to keep, as byte ranges of the source file in output order
+    static final class Plan {
+        final long records;
+        long[] offsets = new long[64];
+        int[] lengths = new int[64];
+        int size;
+
+        Plan(long records) {
+            this.records = records;
+        }
+
+        void add(long offset, int length) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        // Copies the blocks into target, each followed by a blank line; returns the bytes written
+        long writeTo(Path source, Path target) throws IOException {
+            long written = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+                for (int i = 0; i < size; i++) {
+                    if (buffer.capacity() < lengths[i]) {
+                        buffer = ByteBuffer.allocate(Integer.highestOneBit(lengths[i]) << 1);
+                    }
+                    buffer.clear().limit(lengths[i]);
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer, offsets[i] + buffer.position()) < 0) {
+                            throw new IOException("Record at offset " + offsets[i] + " ends past the end of " + source + ".");
+                        }
+                    }
+                    out.write(buffer.array(), 0, lengths[i]);
+                    written += lengths[i];
+                    // The last block of a file may lack its line break
+                    if (buffer.get(lengths[i] - 1) != '\n') {
+                        out.write('\n');
+                        written++;
+                    }
+                    out.write('\n');
+                    written++;
+                }
+            }
+            return written;
+        }
+    }
+
+    // Outcome of one compaction
+    public static class Result {
+        private final long recordsBefore;
+        private final long recordsAfter;
+        private final long bytesBefore;
+        private final long bytesAfter;
+
+        Result(long recordsBefore, long recordsAfter, long bytesBefore, long bytesAfter) {
+            this.recordsBefore = recordsBefore;
+            this.recordsAfter = recordsAfter;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesAfter;
+        }
+
+        public long getRecordsBefore() {
+            return recordsBefore;
+        }
+
+        public long getRecordsAfter() {
+            return recordsAfter;
+        }
+
+        public long getBytesBefore() {
+            return bytesBefore;
+        }
+
+        public long getBytesAfter() {
+            return bytesAfter;
+        }
+
+        @Override
+        public String toString() {
+            return recordsBefore + " records (" + bytesBefore + " bytes) compacted to "
+                    + recordsAfter + " records (" + bytesAfter + " bytes)";
+        }
+    }
+}
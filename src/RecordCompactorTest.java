@@ -0,0 +1,174 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordCompactorTest {
+
+    private Path directory;
+    private Path prescFile;
+    private Path remarkFile;
+    private RecordCompactor compactor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("compaction");
+        prescFile = directory.resolve("presc.txt");
+        remarkFile = directory.resolve("remark.txt");
+        compactor = new RecordCompactor(prescFile, remarkFile);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        compactor.close();
+        RecordAppender.forPath(prescFile).close();
+        RecordAppender.forPath(remarkFile).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Prescription prescription(int id, String optometrist) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist(optometrist);
+        return prescription;
+    }
+
+    private List<Prescription> readPrescriptions() throws IOException {
+        try (MappedRecordReader reader = MappedRecordReader.open(prescFile);
+             Stream<Prescription> records = reader.prescriptions()) {
+            return records.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void test1_CompactPrescriptions_KeepsLatestVersionPerId() throws IOException {
+        RecordAppender appender = RecordAppender.forPath(prescFile);
+        appender.append(prescription(1, "Dr. Robert Smith").formatPrescription());
+        appender.append(prescription(2, "Dr. Robert Smith").formatPrescription());
+        appender.append(prescription(1, "Dr. Jane Doe").formatPrescription());
+        appender.append(prescription(3, "Dr. Robert Smith").formatPrescription());
+        appender.append(prescription(1, "Dr. Amit Patel").formatPrescription());
+
+        RecordCompactor.Result result = compactor.compactPrescriptions();
+
+        assertEquals(5, result.getRecordsBefore());
+        assertEquals(3, result.getRecordsAfter());
+        assertEquals(Files.size(prescFile), result.getBytesAfter());
+        assertTrue(result.getBytesAfter() < result.getBytesBefore());
+        List<Prescription> records = readPrescriptions();
+        assertEquals(List.of(2, 3, 1), records.stream().map(Prescription::getPrescID).collect(Collectors.toList()));
+        assertEquals("Dr. Amit Patel", records.get(2).getOptometrist());
+
+        // Appends keep working on the swapped-in file
+        appender.append(prescription(4, "Dr. Robert Smith").formatPrescription());
+        assertEquals(4, readPrescriptions().size());
+    }
+
+    @Test
+    public void test2_CompactRemarks_GroupsPerPrescriptionAndDropsDuplicates() throws IOException {
+        RecordAppender appender = RecordAppender.forPath(remarkFile);
+        appender.append(new Remark(1, "Client", "This is a valid remark from the client.").format());
+        appender.append(new Remark(2, "Client", "Patient reports mild discomfort when reading.").format());
+        appender.append(new Remark(1, "Client", "This is a valid remark from the client.").format());
+        appender.append(new Remark(1, "Optometrist", "Follow up in six months to recheck the axis.").format());
+
+        RecordCompactor.Result result = compactor.compactRemarks();
+
+        assertEquals(3, result.getRecordsAfter());
+        try (MappedRecordReader reader = MappedRecordReader.open(remarkFile);
+             Stream<Remark> remarks = reader.remarks()) {
+            List<String> order = remarks.map(r -> r.getPrescID() + " " + r.getRemarkType()).collect(Collectors.toList());
+            assertEquals(List.of("1 Client", "1 Optometrist", "2 Client"), order);
+        }
+    }
+
+    @Test
+    public void test3_Compact_LeavesFileUntouchedWhenNothingIsSuperseded() throws IOException {
+        RecordAppender.forPath(prescFile).append(prescription(1, "Dr. Robert Smith").formatPrescription());
+        long modified = Files.getLastModifiedTime(prescFile).toMillis();
+
+        RecordCompactor.Result result = compactor.compactPrescriptions();
+
+        assertEquals(result.getRecordsBefore(), result.getRecordsAfter());
+        assertEquals(modified, Files.getLastModifiedTime(prescFile).toMillis());
+        assertEquals(0, compactor.compactRemarks().getRecordsBefore(), "A missing file compacts to nothing");
+    }
+
+    @Test
+    public void test4_Compact_LosesNoConcurrentAppends() throws Exception {
+        RecordAppender appender = RecordAppender.forPath(prescFile);
+        for (int i = 0; i < 200; i++) {
+            appender.append(prescription(i % 20, "Dr. Robert Smith").formatPrescription());
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> failures = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int id = 1000; id < 3000; id++) {
+                    appender.append(prescription(id, "Dr. Robert Smith").formatPrescription());
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            } finally {
+                done.set(true);
+            }
+        });
+        writer.start();
+        while (!done.get()) {
+            compactor.compactPrescriptions();
+        }
+        writer.join();
+        compactor.compactPrescriptions();
+
+        assertTrue(failures.isEmpty(), "Appends failed: " + failures);
+        List<Integer> ids = readPrescriptions().stream().map(Prescription::getPrescID).collect(Collectors.toList());
+        assertEquals(20 + 2000, ids.size());
+        assertEquals(ids.size(), ids.stream().distinct().count(), "Every ID should appear exactly once");
+    }
+
+    @Test
+    public void test5_SegmentedLog_CompactsSealedSegments() throws IOException {
+        Path segments = directory.resolve("segments");
+        try (SegmentedLog log = SegmentedLog.open(segments, "presc", 1000, Duration.ofDays(1))) {
+            for (int round = 0; round < 3; round++) {
+                for (int id = 1; id <= 5; id++) {
+                    log.append(prescription(id, round == 2 ? "Dr. Jane Doe" : "Dr. Robert Smith"));
+                }
+            }
+            int before = log.segments().size();
+
+            long removed = log.compact();
+
+            assertEquals(10, removed);
+            assertTrue(log.segments().size() < before, "Emptied segments should be dropped");
+            assertEquals(5, log.segments().stream().mapToLong(SegmentedLog.Segment::getRecords).sum());
+            assertEquals("Dr. Jane Doe", log.findById(1).getOptometrist());
+            assertTrue(log.verify().isEmpty(), "Rewritten segments should carry fresh checksums");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.nio.charset.StandardCharsets;
+
+// Labelled lines of the presc.txt and remark.txt record blocks ("<label>: <value>")
+public enum RecordField {
+    PRESCRIPTION_ID("Prescription ID"),
+    FIRST_NAME("First Name"),
+    LAST_NAME("Last Name"),
+    ADDRESS("Address"),
+    SPHERE("Sphere"),
+    CYLINDER("Cylinder"),
+    AXIS("Axis"),
+    EXAMINATION_DATE("Examination Date"),
+    OPTOMETRIST("Optometrist"),
+    REMARK_TYPE("Remark Type"),
+    REMARK("Remark");
+
+    private final String label;
+    private final byte[] prefix;
+
+    RecordField(String label) {
+        this.label = label;
+        this.prefix = (label + ": ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    // "<label>: " as bytes, for matching against raw file content
+    byte[] prefix() {
+        return prefix;
+    }
+}
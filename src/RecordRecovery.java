@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Startup check for a record file after a crash. RecordAppender saves a checkpoint (the file
+// size, in <file>.checkpoint) once everything before it is on disk, so only the records after
+// the checkpoint are read. Each must be complete - followed by its blank line - and its checksum
+// trailer, when it has one, must match. The file is cut back to the end of the last good record;
+// the bytes removed are saved to <file>.dropped rather than thrown away, so they can be inspected
+// or re-entered. Recovery time depends on the checkpoint interval, not on the file size.
+//
+// Run it before anything appends to the file, e.g. at the start of main().
+public final class RecordRecovery {
+    private static final String OFFSET_LABEL = "Offset: ";
+
+    private RecordRecovery() {
+    }
+
+    public static Report recover(String fileName) throws IOException {
+        return recover(Paths.get(fileName));
+    }
+
+    public static Report recover(Path path) throws IOException {
+        long start = System.nanoTime();
+        if (!Files.exists(path)) {
+            return new Report(path, 0, 0, 0, 0, 0, System.nanoTime() - start);
+        }
+        long size = Files.size(path);
+        long checkedFrom = readCheckpoint(path, size);
+
+        long validEnd = size;
+        int records = 0;
+        int droppedRecords = 0;
+        try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+            MappedRecordReader.Cursor cursor = reader.cursor(checkedFrom, size);
+            while (cursor.next()) {
+                // A record runs to the end of the file only when its blank line never got written
+                boolean complete = cursor.nextOffset() < size;
+                if (!complete || RecordChecksum.verify(cursor.bytes()) == RecordChecksum.Status.CORRUPT) {
+                    validEnd = cursor.offset();
+                    droppedRecords++;
+                    break;
+                }
+                records++;
+            }
+            // Records after a bad one cannot be trusted to line up either
+            while (droppedRecords > 0 && cursor.next()) {
+                droppedRecords++;
+            }
+        }
+
+        if (validEnd < size) {
+            saveDropped(path, validEnd, size);
+            RecordAppender.forPath(path).truncate(validEnd);
+        } else {
+            // What was read may so far only be in the page cache of the process that crashed
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        writeCheckpoint(path, validEnd);
+        return new Report(path, checkedFrom, size - checkedFrom, records, droppedRecords, size - validEnd,
+                System.nanoTime() - start);
+    }
+
+    // Saves offset as the end of the part of the file that is known to be intact; written to a
+    // temporary file and moved into place, so a crash leaves either the old or the new checkpoint
+    static void writeCheckpoint(Path path, long offset) throws IOException {
+        Path checkpoint = sibling(path, ".checkpoint");
+        Path temporary = sibling(path, ".checkpoint.tmp");
+        Files.write(temporary, (OFFSET_LABEL + offset + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The checkpointed offset, or 0 (check everything) when there is no usable checkpoint: missing,
+    // unreadable, past the end of the file, or not at a record boundary because the file was
+    // replaced behind the checkpoint's back
+    static long readCheckpoint(Path path, long size) throws IOException {
+        long offset;
+        try {
+            String text = new String(Files.readAllBytes(sibling(path, ".checkpoint")), StandardCharsets.UTF_8).trim();
+            if (!text.startsWith(OFFSET_LABEL)) {
+                return 0;
+            }
+            offset = Long.parseLong(text.substring(OFFSET_LABEL.length()).trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return 0;
+        }
+        return offset <= size && atRecordBoundary(path, offset) ? offset : 0;
+    }
+
+    // True when offset is the start of the file or falls just after the blank line ending a
+    // record, i.e. a position a reader can resume from
+    static boolean atRecordBoundary(Path path, long offset) throws IOException {
+        if (offset == 0) {
+            return true;
+        }
+        if (offset < 2) {
+            return false;
+        }
+        ByteBuffer boundary = ByteBuffer.allocate(2);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(boundary, offset - 2);
+        }
+        return boundary.position() == 2 && boundary.get(0) == '\n' && boundary.get(1) == '\n';
+    }
+
+    private static void saveDropped(Path path, long from, long to) throws IOException {
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(sibling(path, ".dropped"),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long position = from;
+            while (position < to) {
+                position += source.transferTo(position, to - position, target);
+            }
+            target.force(true);
+        }
+    }
+
+    private static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    // What one recovery run checked and removed
+    public static class Report {
+        private final Path path;
+        private final long checkedFrom;
+        private final long checkedBytes;
+        private final int checkedRecords;
+        private final int droppedRecords;
+        private final long droppedBytes;
+        private final long nanos;
+
+        private Report(Path path, long checkedFrom, long checkedBytes, int checkedRecords,
+                       int droppedRecords, long droppedBytes, long nanos) {
+            this.path = path;
+            this.checkedFrom = checkedFrom;
+            this.checkedBytes = checkedBytes;
+            this.checkedRecords = checkedRecords;
+            this.droppedRecords = droppedRecords;
+            this.droppedBytes = droppedBytes;
+            this.nanos = nanos;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        // Offset the check started from: the checkpoint, or 0 without one
+        public long getCheckedFrom() {
+            return checkedFrom;
+        }
+
+        public long getCheckedBytes() {
+            return checkedBytes;
+        }
+
+        // Intact records found after the checkpoint
+        public int getCheckedRecords() {
+            return checkedRecords;
+        }
+
+        public int getDroppedRecords() {
+            return droppedRecords;
+        }
+
+        public long getDroppedBytes() {
+            return droppedBytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            String checked = path + ": checked " + checkedRecords + " records (" + checkedBytes
+                    + " bytes from offset " + checkedFrom + ") in " + nanos / 1_000_000 + " ms";
+            if (droppedBytes == 0) {
+                return checked + "; nothing dropped.";
+            }
+            return checked + "; dropped " + droppedRecords + " incomplete or corrupt records (" + droppedBytes
+                    + " bytes), saved to " + sibling(path, ".dropped") + ".";
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordRecoveryTest {
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("presc-recovery");
+        file = dir.resolve("presc.txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        RecordAppender.forPath(file).close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String record(int id) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(new Date());
+        prescription.setOptometrist("Dr. Robert Smith");
+        return prescription.formatPrescription();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The block as a cursor returns it: without its terminating blank line
+    private static byte[] block(byte[] framed) {
+        return Arrays.copyOf(framed, framed.length - 1);
+    }
+
+    @Test
+    public void test1_Frame_VerifiesAndDetectsDamage() {
+        byte[] framed = RecordChecksum.frame(bytes(record(1)));
+        String text = new String(framed, StandardCharsets.UTF_8);
+        assertTrue(text.startsWith(record(1).trim() + "\nChecksum: "), "Trailer should follow the last field");
+        assertTrue(text.endsWith("\n\n"), "Block should still end in a blank line");
+        assertEquals(RecordChecksum.Status.VALID, RecordChecksum.verify(block(framed)));
+
+        byte[] damaged = block(framed);
+        damaged[20] ^= 1;
+        assertEquals(RecordChecksum.Status.CORRUPT, RecordChecksum.verify(damaged));
+        assertEquals(RecordChecksum.Status.UNFRAMED, RecordChecksum.verify(block(bytes(record(1)))));
+        assertArrayEquals(framed, RecordChecksum.frame(framed), "Framing twice should not add a second trailer");
+
+        String two = new String(RecordChecksum.frame(bytes(record(1) + record(2))), StandardCharsets.UTF_8);
+        assertEquals(2, two.split("\nChecksum: ").length - 1, "Every block of a batch should be framed");
+    }
+
+    @Test
+    public void test2_Recover_TruncatesTornRecord() throws Exception {
+        RecordAppender appender = RecordAppender.forPath(file);
+        appender.appendRecords(record(1) + record(2));
+        long intact = Files.size(file);
+        String torn = record(3).substring(0, 60);
+        Files.write(file, bytes(torn), StandardOpenOption.APPEND);
+
+        RecordRecovery.Report report = RecordRecovery.recover(file);
+
+        assertEquals(2, report.getCheckedRecords());
+        assertEquals(1, report.getDroppedRecords());
+        assertEquals(torn.length(), report.getDroppedBytes());
+        assertEquals(intact, Files.size(file), "File should end after the last complete record");
+        assertEquals(torn, Files.readString(dir.resolve("presc.txt.dropped")), "Dropped bytes should be kept");
+
+        appender.appendRecords(record(3));
+        try (PrescriptionRepository repository = PrescriptionRepository.open(file)) {
+            assertEquals(3, repository.size(), "Appends after recovery should start on a clean boundary");
+        }
+    }
+
+    @Test
+    public void test3_Recover_DropsFromFirstCorruptRecord() throws Exception {
+        RecordAppender.forPath(file).appendRecords(record(1) + record(2) + record(3));
+        String content = Files.readString(file);
+        int second = content.indexOf("Prescription ID: 2");
+        Files.writeString(file, content.substring(0, second) + content.substring(second).replaceFirst("Alice", "Alica"));
+
+        RecordRecovery.Report report = RecordRecovery.recover(file);
+
+        assertEquals(1, report.getCheckedRecords());
+        assertEquals(2, report.getDroppedRecords(), "Records after a corrupt one should be dropped with it");
+        assertEquals(second, Files.size(file));
+    }
+
+    @Test
+    public void test4_Recover_ChecksOnlyTailAfterCheckpoint() throws Exception {
+        RecordAppender appender = RecordAppender.forPath(file);
+        StringBuilder records = new StringBuilder();
+        for (int id = 1; id <= 1000; id++) {
+            records.append(record(id));
+        }
+        appender.appendRecords(records.toString());
+        RecordRecovery.recover(file);
+        long checkpoint = Files.size(file);
+
+        appender.appendRecords(record(1001));
+        Files.write(file, bytes("Prescription ID: 1002\nFirst"), StandardOpenOption.APPEND);
+        RecordRecovery.Report report = RecordRecovery.recover(file);
+
+        assertEquals(checkpoint, report.getCheckedFrom(), "Recovery should start at the checkpoint");
+        assertEquals(1, report.getCheckedRecords());
+        assertEquals(1, report.getDroppedRecords());
+    }
+
+    @Test
+    public void test5_Recover_AcceptsRecordsWithoutChecksums() throws Exception {
+        Files.writeString(file, record(1) + record(2));
+        Files.writeString(dir.resolve("presc.txt.checkpoint"), "Offset: 5\n"); // Not a record boundary
+
+        RecordRecovery.Report report = RecordRecovery.recover(file);
+
+        assertEquals(0, report.getCheckedFrom(), "An unusable checkpoint should mean a full check");
+        assertEquals(2, report.getCheckedRecords());
+        assertEquals(0, report.getDroppedBytes());
+        assertEquals(record(1) + record(2), Files.readString(file));
+    }
+
+    @Test
+    public void test6_AppendRecords_CheckpointsEveryInterval() throws Exception {
+        StringBuilder records = new StringBuilder();
+        while (records.length() < 5 * 1024 * 1024) {
+            records.append(record(records.length()));
+        }
+        RecordAppender.forPath(file).appendRecords(records.toString());
+
+        assertEquals("Offset: " + Files.size(file), Files.readString(dir.resolve("presc.txt.checkpoint")).trim());
+        assertEquals(0, RecordRecovery.recover(file).getCheckedRecords(), "Nothing was written after the checkpoint");
+    }
+}
@@ -0,0 +1,34 @@
+// A remark as stored in remark.txt, read back from disk
+public class Remark {
+    // Remarks read back from disk share one String per remark type
+    static final StringDictionary REMARK_TYPES = new StringDictionary();
+
+    private final int prescID;
+    private final String remarkType;
+    private final String remarkText;
+
+    public Remark(int prescID, String remarkType, String remarkText) {
+        this.prescID = prescID;
+        this.remarkType = remarkType;
+        this.remarkText = remarkText;
+    }
+
+    public int getPrescID() {
+        return prescID;
+    }
+
+    public String getRemarkType() {
+        return remarkType;
+    }
+
+    public String getRemarkText() {
+        return remarkText;
+    }
+
+    // Renders the remark block in the remark.txt format written by Prescription.formatRemark()
+    String format() {
+        return "Prescription ID: " + prescID + "\n"
+                + "Remark Type: " + remarkType + "\n"
+                + "Remark: " + remarkText + "\n\n";
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Per-prescription remark counts backing the "at most 2 remarks" rule.
+// Counts are rebuilt from remark.txt when the store is loaded, so the limit survives restarts
+// and fresh Prescription objects, and are updated atomically per ID so it also holds when
+// several threads add remarks for the same prescription.
+// The counts live in this process only: they are read from the file once, at load(), and are not
+// re-checked under the file lock when a remark is written. Two processes each holding a store for
+// the same remark.txt can therefore together write more than MAX_REMARKS remarks for an ID; run a
+// single writer process (e.g. PrescriptionServer) per file.
+public class RemarkStore {
+    public static final int MAX_REMARKS = 2;
+
+    private final ConcurrentMap<Integer, Integer> counts = new ConcurrentHashMap<>();
+
+    public static RemarkStore empty() {
+        return new RemarkStore();
+    }
+
+    public static RemarkStore load(String fileName) throws IOException {
+        return load(Paths.get(fileName));
+    }
+
+    // Counts every remark already in the file
+    public static RemarkStore load(Path path) throws IOException {
+        RemarkStore store = new RemarkStore();
+        if (Files.exists(path)) {
+            try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+                MappedRecordReader.Cursor cursor = reader.cursor();
+                while (cursor.next()) {
+                    if (cursor.has(RecordField.PRESCRIPTION_ID) && cursor.has(RecordField.REMARK)) {
+                        store.counts.merge(cursor.intValue(RecordField.PRESCRIPTION_ID), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return store;
+    }
+
+    public int count(int prescID) {
+        return counts.getOrDefault(prescID, 0);
+    }
+
+    public boolean isFull(int prescID) {
+        return count(prescID) >= MAX_REMARKS;
+    }
+
+    // Takes one remark slot for the prescription; false when it already has MAX_REMARKS
+    public boolean tryReserve(int prescID) {
+        boolean[] reserved = new boolean[1];
+        counts.compute(prescID, (id, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= MAX_REMARKS) {
+                return count;
+            }
+            reserved[0] = true;
+            return current + 1;
+        });
+        return reserved[0];
+    }
+
+    // Gives back a slot taken by tryReserve() whose remark could not be written
+    public void release(int prescID) {
+        counts.computeIfPresent(prescID, (id, count) -> count > 1 ? count - 1 : null);
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RemarkStoreTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("remark-store", ".txt");
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(3);
+        prescription.setRemarkType("client");
+        prescription.setRemarkText("This is a valid remark from the client.");
+        Files.write(file, prescription.formatRemark().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void test1_Load_CountsRemarksAlreadyOnDisk() throws Exception {
+        RemarkStore store = RemarkStore.load(file);
+
+        assertEquals(1, store.count(3), "Existing remark should be counted");
+        assertTrue(store.tryReserve(3), "Second remark should be allowed");
+        assertFalse(store.tryReserve(3), "Third remark should be refused");
+
+        // A store rebuilt from the same file starts from the persisted count, not from zero
+        assertEquals(1, RemarkStore.load(file).count(3));
+    }
+
+    @Test
+    public void test2_AddRemark_LimitHoldsForFreshPrescriptionObjects() throws Exception {
+        RemarkStore store = RemarkStore.load(file);
+        store.tryReserve(3);
+
+        Prescription fresh = new Prescription();
+        fresh.setPrescID(3);
+        fresh.setRemarkType("optometrist");
+        fresh.setRemarkText("Another valid remark from the optometrist today.");
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            fresh.addRemark(store);
+        });
+        assertTrue(exception.getMessage().contains("You can only add up to 2 remarks."),
+                "Exception message should indicate that only 2 remarks are allowed");
+    }
+
+    @Test
+    public void test3_TryReserve_ConcurrentCallersGetExactlyTheLimit() throws Exception {
+        RemarkStore store = RemarkStore.empty();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            attempts.add(() -> store.tryReserve(9));
+        }
+
+        int granted = 0;
+        for (Future<Boolean> result : pool.invokeAll(attempts)) {
+            if (result.get()) {
+                granted++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(RemarkStore.MAX_REMARKS, granted, "Only the limit should be granted");
+        assertEquals(RemarkStore.MAX_REMARKS, store.count(9));
+    }
+}
@@ -0,0 +1,95 @@
+// Single-pass scanner for remark text.
+// Gives the same answers addRemark() used to get from text.trim().split("\\s+") - word count,
+// whether the text is empty and whether the first word starts with a capital - without a regex
+// and without allocating. scan() packs the results into a long so it stays allocation-free and
+// thread-safe; forEachWord() exposes the word boundaries for callers such as bulk imports or
+// remark search indexing.
+public final class RemarkTextScanner {
+    private static final long WORD_COUNT_MASK = 0xFFFFFFFFL;
+    private static final long CAPITALIZED = 1L << 32;
+    private static final long EMPTY = 1L << 33;
+
+    private RemarkTextScanner() {
+    }
+
+    // Receives the [start, end) character range of each word
+    public interface WordVisitor {
+        void visit(CharSequence text, int start, int end);
+    }
+
+    // Scans the text once; read the result with wordCount(), isEmpty() and startsWithCapital()
+    public static long scan(CharSequence text) {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        if (start == end) {
+            return EMPTY;
+        }
+
+        long result = Character.isUpperCase(text.charAt(start)) ? CAPITALIZED : 0;
+        int words = 0;
+        boolean inWord = false;
+        for (int i = start; i < end; i++) {
+            boolean separator = isSeparator(text.charAt(i));
+            if (!separator && !inWord) {
+                words++;
+            }
+            inWord = !separator;
+        }
+        return result | words;
+    }
+
+    public static int wordCount(long scan) {
+        return (int) (scan & WORD_COUNT_MASK);
+    }
+
+    // True when nothing is left after trimming, like trim().isEmpty()
+    public static boolean isEmpty(long scan) {
+        return (scan & EMPTY) != 0;
+    }
+
+    public static boolean startsWithCapital(long scan) {
+        return (scan & CAPITALIZED) != 0;
+    }
+
+    // Calls the visitor for every word, in order
+    public static void forEachWord(CharSequence text, WordVisitor visitor) {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        int wordStart = -1;
+        for (int i = start; i < end; i++) {
+            if (isSeparator(text.charAt(i))) {
+                if (wordStart >= 0) {
+                    visitor.visit(text, wordStart, i);
+                    wordStart = -1;
+                }
+            } else if (wordStart < 0) {
+                wordStart = i;
+            }
+        }
+        if (wordStart >= 0) {
+            visitor.visit(text, wordStart, end);
+        }
+    }
+
+    // String.trim() bounds: characters up to ' ' are stripped from both ends
+    private static int trimStart(CharSequence text) {
+        int start = 0;
+        while (start < text.length() && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence text, int start) {
+        int end = text.length();
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // The regex \s character class: [ \t\n\x0B\f\r]
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RemarkTextScannerTest {
+
+    @Test
+    public void test1_Scan_MatchesSplitBasedCounting() {
+        String[] samples = {
+                "This is a valid remark from the client.",
+                "  Leading and trailing   spaces\tand tabs  ",
+                "this remark starts with a lowercase letter.",
+                " another remark that starts with a space.",
+                "Single",
+                "Line\nbreaks\r\ninside the\u000Bremark",
+                "\u0001Control character before the first word",
+                "Non\u00A0breaking space is not a separator"
+        };
+        for (String sample : samples) {
+            String[] words = sample.trim().split("\\s+");
+            long scan = RemarkTextScanner.scan(sample);
+            assertFalse(RemarkTextScanner.isEmpty(scan));
+            assertEquals(words.length, RemarkTextScanner.wordCount(scan), "Word count for: " + sample);
+            assertEquals(Character.isUpperCase(words[0].charAt(0)), RemarkTextScanner.startsWithCapital(scan),
+                    "Capitalization for: " + sample);
+        }
+    }
+
+    @Test
+    public void test2_Scan_DetectsEmptyText() {
+        assertTrue(RemarkTextScanner.isEmpty(RemarkTextScanner.scan("")));
+        assertTrue(RemarkTextScanner.isEmpty(RemarkTextScanner.scan(" \t\n ")));
+        assertEquals(0, RemarkTextScanner.wordCount(RemarkTextScanner.scan("   ")));
+    }
+
+    @Test
+    public void test3_ForEachWord_VisitsWordsInOrder() {
+        List<String> words = new ArrayList<>();
+        RemarkTextScanner.forEachWord("  Lens  fits\twell ", (text, start, end) ->
+                words.add(text.subSequence(start, end).toString()));
+        assertEquals(List.of("Lens", "fits", "well"), words);
+    }
+}
@@ -0,0 +1,576 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// presc.txt / remark.txt split into bounded segment files in one directory.
+// Records are appended to the active segment (<base>-000001.txt, <base>-000002.txt, ...); once it
+// would grow past maxSegmentBytes or is older than maxSegmentAge it is sealed - closed for
+// writing and checksummed with CRC32 - and a new segment is started. manifest.txt lists every
+// segment with its record count, prescription ID range and examination-date range, so lookups
+// skip segments that cannot hold a match, and sealed segments can be backed up and verified
+// on their own. The manifest is replaced atomically on every rotation; the ranges of the
+// active segment are rebuilt from its contents when the log is opened.
+// Records carry the same checksum trailer as presc.txt (RecordAppender.appendRecords), so when
+// the log is opened RecordRecovery first cuts a torn or corrupt tail off the active segment.
+public class SegmentedLog implements Closeable {
+    public static final String MANIFEST = "manifest.txt";
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final Duration DEFAULT_MAX_SEGMENT_AGE = Duration.ofDays(1);
+    private static final int CRC_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final String baseName;
+    private final long maxSegmentBytes;
+    private final Duration maxSegmentAge;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Segment> segments;
+
+    private SegmentedLog(Path directory, String baseName, long maxSegmentBytes, Duration maxSegmentAge,
+                         List<Segment> segments) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAge = maxSegmentAge;
+        this.segments = segments;
+    }
+
+    public static SegmentedLog open(Path directory, String baseName) throws IOException {
+        return open(directory, baseName, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_SEGMENT_AGE);
+    }
+
+    // Opens the log in directory, creating the directory and a first segment when needed.
+    // baseName names the segment files, e.g. "presc" or "remark".
+    public static SegmentedLog open(Path directory, String baseName, long maxSegmentBytes,
+                                    Duration maxSegmentAge) throws IOException {
+        if (maxSegmentBytes < 1) {
+            throw new IllegalArgumentException("Maximum segment size must be at least 1 byte.");
+        }
+        Files.createDirectories(directory);
+        Path manifest = directory.resolve(MANIFEST);
+        List<Segment> segments = Files.exists(manifest) ? readManifest(manifest) : new ArrayList<>();
+
+        SegmentedLog log = new SegmentedLog(directory, baseName, maxSegmentBytes, maxSegmentAge, segments);
+        if (segments.isEmpty() || segments.get(segments.size() - 1).sealed) {
+            log.startSegment();
+        } else {
+            // Appends after the last manifest write are not in the manifest; drop whatever a crash
+            // left half written, then recount from the file
+            Segment active = segments.get(segments.size() - 1);
+            RecordRecovery.recover(log.segmentPath(active));
+            log.rescan(active);
+        }
+        return log;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Validates the prescription with the same rules as addPrescription() and appends it
+    public void append(Prescription prescription) throws IOException {
+        List<String> errorList = prescription.validatePrescription();
+        if (!errorList.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errorList));
+        }
+        append(prescription.getPrescID(), prescription.examinationEpochDay(), prescription.formatPrescription());
+    }
+
+    public void append(Remark remark) throws IOException {
+        append(remark.getPrescID(), Prescription.NO_EPOCH_DAY, remark.format());
+    }
+
+    private void append(int prescID, int epochDay, String record) throws IOException {
+        // Framed here so the size check and the byte count include the trailer; appendRecords
+        // leaves blocks that already end in a trailer as they are
+        byte[] bytes = RecordChecksum.frame(record.getBytes(StandardCharsets.UTF_8));
+        lock.lock();
+        try {
+            Segment active = active();
+            if (active.records > 0 && (active.bytes + bytes.length > maxSegmentBytes || isExpired(active))) {
+                sealActive();
+                startSegment();
+                active = active();
+            }
+            RecordAppender.forPath(segmentPath(active)).appendRecords(bytes, false);
+            active.add(prescID, epochDay, bytes.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Seals the active segment now, if it has any records, and starts a new one
+    public void rotate() throws IOException {
+        lock.lock();
+        try {
+            if (active().records > 0) {
+                sealActive();
+                startSegment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Snapshot of the segment descriptors, oldest first
+    public List<Segment> segments() {
+        lock.lock();
+        try {
+            List<Segment> copy = new ArrayList<>(segments.size());
+            for (Segment segment : segments) {
+                copy.add(segment.copy());
+            }
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Latest record for the ID; only segments whose ID range covers it are read, newest first
+    public Prescription findById(int prescID) throws IOException {
+        List<Segment> snapshot = segments();
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            Segment segment = snapshot.get(i);
+            if (!segment.mayContainId(prescID)) {
+                continue;
+            }
+            try (MappedRecordReader reader = MappedRecordReader.open(segmentPath(segment))) {
+                // Only the offset is tracked while scanning; the latest record is parsed once
+                long latest = -1;
+                MappedRecordReader.Cursor cursor = reader.cursor();
+                while (cursor.next()) {
+                    if (cursor.has(RecordField.PRESCRIPTION_ID) && cursor.intValue(RecordField.PRESCRIPTION_ID) == prescID) {
+                        latest = cursor.offset();
+                    }
+                }
+                if (latest >= 0) {
+                    cursor = reader.cursor(latest);
+                    cursor.next();
+                    return cursor.toPrescription();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Prescriptions examined between from and to (inclusive), in write order. Segments whose
+    // date range does not overlap are never opened. Close the stream to release the files.
+    public Stream<Prescription> prescriptionsBetween(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        return segments().stream()
+                .filter(segment -> segment.mayContainDays(fromDay, toDay))
+                .flatMap(segment -> read(segment, MappedRecordReader::prescriptions))
+                .filter(prescription -> {
+                    int day = prescription.examinationEpochDay();
+                    return day != Prescription.NO_EPOCH_DAY && day >= fromDay && day <= toDay;
+                });
+    }
+
+    // Every remark for the ID, in write order
+    public Stream<Remark> remarksFor(int prescID) {
+        return segments().stream()
+                .filter(segment -> segment.mayContainId(prescID))
+                .flatMap(segment -> read(segment, MappedRecordReader::remarks))
+                .filter(remark -> remark.getPrescID() == prescID);
+    }
+
+    // Rewrites sealed segments without superseded prescriptions (an ID with a newer record in a
+    // later position of the log) and without repeated remarks (same ID, type and text). Segments
+    // left empty are removed. The active segment is never rewritten, so appends continue while
+    // this runs; its records still count when deciding what is superseded.
+    // Returns the number of records removed.
+    public long compact() throws IOException {
+        List<Segment> snapshot = segments();
+        long[] ends = new long[snapshot.size()];
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            ends[i] = segment.sealed ? Long.MAX_VALUE : RecordAppender.forPath(segmentPath(segment)).size();
+        }
+
+        // Latest position of every prescription ID, packed as segment index << 40 | offset
+        IntLongMap latest = new IntLongMap(1024);
+        for (int i = 0; i < snapshot.size(); i++) {
+            try (MappedRecordReader reader = MappedRecordReader.open(segmentPath(snapshot.get(i)))) {
+                MappedRecordReader.Cursor cursor = reader.cursor(0, ends[i]);
+                while (cursor.next()) {
+                    if (cursor.has(RecordField.PRESCRIPTION_ID) && !cursor.has(RecordField.REMARK)) {
+                        latest.put(cursor.intValue(RecordField.PRESCRIPTION_ID), (long) i << 40 | cursor.offset());
+                    }
+                }
+            }
+        }
+
+        long removed = 0;
+        Set<String> seenRemarks = new HashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            if (!segment.sealed) {
+                continue;
+            }
+            Path path = segmentPath(segment);
+            RecordCompactor.Plan plan;
+            try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+                plan = planSegment(reader, i, latest, seenRemarks);
+            }
+            if (plan.size == plan.records) {
+                continue;
+            }
+
+            Path temp = directory.resolve(segment.name + ".compact");
+            try {
+                plan.writeTo(path, temp);
+                replaceSealed(segment.name, temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            removed += plan.records - plan.size;
+        }
+        return removed;
+    }
+
+    private static RecordCompactor.Plan planSegment(MappedRecordReader reader, int index, IntLongMap latest,
+                                                    Set<String> seenRemarks) throws IOException {
+        long records = 0;
+        MappedRecordReader.Cursor cursor = reader.cursor();
+        while (cursor.next()) {
+            records++;
+        }
+
+        RecordCompactor.Plan plan = new RecordCompactor.Plan(records);
+        cursor = reader.cursor();
+        while (cursor.next()) {
+            if (!cursor.has(RecordField.PRESCRIPTION_ID)) {
+                continue;
+            }
+            boolean keep;
+            if (cursor.has(RecordField.REMARK)) {
+                Remark remark = cursor.toRemark();
+                keep = seenRemarks.add(remark.getPrescID() + "\n" + remark.getRemarkType() + "\n" + remark.getRemarkText());
+            } else {
+                keep = latest.get(cursor.intValue(RecordField.PRESCRIPTION_ID)) == ((long) index << 40 | cursor.offset());
+            }
+            if (keep) {
+                plan.add(cursor.offset(), cursor.length());
+            }
+        }
+        return plan;
+    }
+
+    // Moves a compacted copy over a sealed segment and refreshes its manifest entry
+    private void replaceSealed(String name, Path compacted) throws IOException {
+        lock.lock();
+        try {
+            Segment segment = null;
+            for (Segment candidate : segments) {
+                if (candidate.name.equals(name)) {
+                    segment = candidate;
+                }
+            }
+            if (segment == null) {
+                return;
+            }
+            Path path = segmentPath(segment);
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            rescan(segment);
+            if (segment.records == 0) {
+                Files.delete(path);
+                segments.remove(segment);
+            } else {
+                segment.crc32 = checksum(path);
+            }
+            writeManifest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sealed segments whose contents no longer match the checksum in the manifest
+    public List<String> verify() throws IOException {
+        List<String> corrupt = new ArrayList<>();
+        for (Segment segment : segments()) {
+            Path path = segmentPath(segment);
+            if (segment.sealed && (!Files.exists(path) || checksum(path) != segment.crc32)) {
+                corrupt.add(segment.name);
+            }
+        }
+        return corrupt;
+    }
+
+    // Writes the current state of the active segment to the manifest and closes its channel
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            RecordAppender.forPath(segmentPath(active())).close();
+            writeManifest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Path segmentPath(Segment segment) {
+        return directory.resolve(segment.name);
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private boolean isExpired(Segment segment) {
+        return maxSegmentAge != null && Instant.now().isAfter(segment.created.plus(maxSegmentAge));
+    }
+
+    private void startSegment() throws IOException {
+        int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+        Segment segment = new Segment(number, String.format("%s-%06d.txt", baseName, number), Instant.now());
+        Files.write(segmentPath(segment), new byte[0], StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segments.add(segment);
+        writeManifest();
+    }
+
+    private void sealActive() throws IOException {
+        Segment active = active();
+        Path path = segmentPath(active);
+        RecordAppender.forPath(path).close();
+        active.bytes = Files.size(path);
+        active.crc32 = checksum(path);
+        active.sealed = true;
+        writeManifest();
+        // Sealed segments are checked against their CRC32, not recovered
+        Files.deleteIfExists(path.resolveSibling(active.name + ".checkpoint"));
+    }
+
+    private void rescan(Segment segment) throws IOException {
+        Path path = segmentPath(segment);
+        segment.reset();
+        if (!Files.exists(path)) {
+            Files.write(path, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            return;
+        }
+        try (MappedRecordReader reader = MappedRecordReader.open(path)) {
+            MappedRecordReader.Cursor cursor = reader.cursor();
+            while (cursor.next()) {
+                if (!cursor.has(RecordField.PRESCRIPTION_ID)) {
+                    continue;
+                }
+                segment.add(cursor.intValue(RecordField.PRESCRIPTION_ID),
+                        cursor.epochDayValue(RecordField.EXAMINATION_DATE), 0);
+            }
+        }
+        segment.bytes = Files.size(path);
+    }
+
+    private interface ReaderQuery<T> {
+        Stream<T> apply(MappedRecordReader reader) throws IOException;
+    }
+
+    // Stream over one segment that closes the segment's reader when it is closed
+    private <T> Stream<T> read(Segment segment, ReaderQuery<T> query) {
+        try {
+            MappedRecordReader reader = MappedRecordReader.open(segmentPath(segment));
+            return query.apply(reader).onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CRC_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private void writeManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Segment segment : segments) {
+                out.write(segment.format());
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Segment> readManifest(Path manifest) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        for (String block : new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8).split("\n\n")) {
+            if (!block.trim().isEmpty()) {
+                segments.add(Segment.parse(block));
+            }
+        }
+        return segments;
+    }
+
+    // One segment file and the ranges of the records in it
+    public static final class Segment {
+        private static final int NO_ID = Integer.MIN_VALUE;
+
+        private final int number;
+        private final String name;
+        private final Instant created;
+        private long records;
+        private long bytes;
+        private int minId = NO_ID;
+        private int maxId = NO_ID;
+        private int minEpochDay = Prescription.NO_EPOCH_DAY;
+        private int maxEpochDay = Prescription.NO_EPOCH_DAY;
+        private boolean sealed;
+        private long crc32;
+
+        private Segment(int number, String name, Instant created) {
+            this.number = number;
+            this.name = name;
+            this.created = created;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Instant getCreated() {
+            return created;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isSealed() {
+            return sealed;
+        }
+
+        public long getCrc32() {
+            return crc32;
+        }
+
+        // False when the segment certainly holds no record for the ID
+        public boolean mayContainId(int prescID) {
+            return records > 0 && prescID >= minId && prescID <= maxId;
+        }
+
+        // False when no record in the segment has an examination date in [fromDay, toDay]
+        public boolean mayContainDays(long fromDay, long toDay) {
+            return minEpochDay != Prescription.NO_EPOCH_DAY && toDay >= minEpochDay && fromDay <= maxEpochDay;
+        }
+
+        private void add(int prescID, int epochDay, int byteCount) {
+            if (records++ == 0) {
+                minId = maxId = prescID;
+            } else {
+                minId = Math.min(minId, prescID);
+                maxId = Math.max(maxId, prescID);
+            }
+            if (epochDay != Prescription.NO_EPOCH_DAY) {
+                boolean first = minEpochDay == Prescription.NO_EPOCH_DAY;
+                minEpochDay = first ? epochDay : Math.min(minEpochDay, epochDay);
+                maxEpochDay = first ? epochDay : Math.max(maxEpochDay, epochDay);
+            }
+            bytes += byteCount;
+        }
+
+        private void reset() {
+            records = 0;
+            bytes = 0;
+            minId = maxId = NO_ID;
+            minEpochDay = maxEpochDay = Prescription.NO_EPOCH_DAY;
+        }
+
+        private Segment copy() {
+            Segment copy = new Segment(number, name, created);
+            copy.records = records;
+            copy.bytes = bytes;
+            copy.minId = minId;
+            copy.maxId = maxId;
+            copy.minEpochDay = minEpochDay;
+            copy.maxEpochDay = maxEpochDay;
+            copy.sealed = sealed;
+            copy.crc32 = crc32;
+            return copy;
+        }
+
+        private String format() {
+            return "Segment: " + name + "\n"
+                    + "Created: " + created + "\n"
+                    + "Records: " + records + "\n"
+                    + "Bytes: " + bytes + "\n"
+                    + "ID Range: " + (records > 0 ? minId + " " + maxId : "N/A") + "\n"
+                    + "Date Range: " + (minEpochDay != Prescription.NO_EPOCH_DAY
+                    ? LocalDate.ofEpochDay(minEpochDay) + " " + LocalDate.ofEpochDay(maxEpochDay) : "N/A") + "\n"
+                    + "Sealed: " + (sealed ? "yes" : "no") + "\n"
+                    + "CRC32: " + (sealed ? Long.toHexString(crc32) : "N/A") + "\n\n";
+        }
+
+        private static Segment parse(String block) {
+            Map<String, String> fields = new HashMap<>();
+            for (String line : block.split("\n")) {
+                int colon = line.indexOf(": ");
+                if (colon >= 0) {
+                    fields.put(line.substring(0, colon), line.substring(colon + 2).trim());
+                }
+            }
+            String name = fields.get("Segment");
+            String created = fields.get("Created");
+            if (name == null || created == null) {
+                throw new IllegalArgumentException("Manifest entry is missing its segment name or creation time.");
+            }
+
+            int number = Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.lastIndexOf('.')));
+            Segment segment = new Segment(number, name, Instant.parse(created));
+            segment.records = Long.parseLong(fields.getOrDefault("Records", "0"));
+            segment.bytes = Long.parseLong(fields.getOrDefault("Bytes", "0"));
+            String[] ids = fields.getOrDefault("ID Range", "N/A").split(" ");
+            if (ids.length == 2) {
+                segment.minId = Integer.parseInt(ids[0]);
+                segment.maxId = Integer.parseInt(ids[1]);
+            }
+            String[] dates = fields.getOrDefault("Date Range", "N/A").split(" ");
+            if (dates.length == 2) {
+                segment.minEpochDay = (int) LocalDate.parse(dates[0]).toEpochDay();
+                segment.maxEpochDay = (int) LocalDate.parse(dates[1]).toEpochDay();
+            }
+            segment.sealed = "yes".equals(fields.get("Sealed"));
+            String crc = fields.getOrDefault("CRC32", "N/A");
+            if (!crc.equals("N/A")) {
+                segment.crc32 = Long.parseLong(crc, 16);
+            }
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedLogTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segments");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Prescription prescription(int id, LocalDate examined) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescID(id);
+        prescription.setFirstName("Alice");
+        prescription.setLastName("Johnson");
+        prescription.setAddress("123 Main Street, Springfield, IL 62704, USA");
+        prescription.setSphere(-5.0f);
+        prescription.setCylinder(-1.0f);
+        prescription.setAxis(90.0f);
+        prescription.setExaminationDate(Date.from(examined.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        prescription.setOptometrist("Dr. Robert Smith");
+        return prescription;
+    }
+
+    @Test
+    public void test1_Append_RotatesAndSealsBySize() throws IOException {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc", 1000, Duration.ofDays(1))) {
+            for (int id = 1; id <= 20; id++) {
+                log.append(prescription(id, day.plusDays(id)));
+            }
+
+            List<SegmentedLog.Segment> segments = log.segments();
+            assertTrue(segments.size() > 1, "Small segments should force rotation");
+            long records = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                SegmentedLog.Segment segment = segments.get(i);
+                records += segment.getRecords();
+                assertEquals(i < segments.size() - 1, segment.isSealed(), "Only the active segment is unsealed");
+                assertTrue(segment.getBytes() <= 1000, "Segment " + segment.getName() + " is over the limit");
+            }
+            assertEquals(20, records);
+            assertTrue(log.verify().isEmpty(), "Freshly sealed segments should verify");
+        }
+    }
+
+    @Test
+    public void test2_Lookups_SkipSegmentsOutsideTheirRanges() throws IOException {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc", 1000, Duration.ofDays(1))) {
+            for (int id = 1; id <= 20; id++) {
+                log.append(prescription(id, day.plusDays(id)));
+            }
+            Prescription updated = prescription(3, day);
+            updated.setOptometrist("Dr. Jane Doe");
+            log.append(updated);
+
+            long candidates = log.segments().stream().filter(s -> s.mayContainId(15)).count();
+            assertEquals(1, candidates, "Only one segment should cover ID 15");
+            assertEquals(15, log.findById(15).getPrescID());
+            assertEquals("Dr. Jane Doe", log.findById(3).getOptometrist(), "Latest version should win");
+            assertNull(log.findById(99));
+
+            try (Stream<Prescription> range = log.prescriptionsBetween(day.plusDays(5), day.plusDays(7))) {
+                assertEquals(List.of(5, 6, 7), range.map(Prescription::getPrescID).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void test3_Open_RestoresManifestAndActiveSegment() throws IOException {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc")) {
+            log.append(prescription(1, day));
+            log.rotate();
+            log.append(prescription(2, day));
+        }
+        // A record appended behind the manifest's back, as after a crash
+        Path active = directory.resolve("presc-000002.txt");
+        Files.write(active, prescription(3, day).formatPrescription().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc")) {
+            List<SegmentedLog.Segment> segments = log.segments();
+            assertEquals(2, segments.size());
+            assertTrue(segments.get(0).isSealed());
+            assertEquals(2, segments.get(1).getRecords());
+            assertEquals(3, log.findById(3).getPrescID());
+        }
+    }
+
+    @Test
+    public void test4_Verify_ReportsModifiedSealedSegment() throws IOException {
+        try (SegmentedLog log = SegmentedLog.open(directory, "remark")) {
+            log.append(new Remark(7, "Client", "This is a valid remark from the client."));
+            log.rotate();
+            log.append(new Remark(7, "Optometrist", "Follow up in six months to recheck the axis."));
+
+            assertEquals(2, log.remarksFor(7).count());
+            Files.write(directory.resolve("remark-000001.txt"), "tampered".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            assertEquals(List.of("remark-000001.txt"), log.verify());
+        }
+    }
+
+    @Test
+    public void test5_Append_RejectsInvalidPrescription() throws IOException {
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc")) {
+            Prescription invalid = prescription(1, LocalDate.of(2024, 1, 1));
+            invalid.setSphere(30.0f);
+            assertThrows(IllegalArgumentException.class, () -> log.append(invalid));
+            assertEquals(0, log.segments().get(0).getRecords());
+        }
+    }
+
+    @Test
+    public void test6_Open_DropsCorruptTailOfActiveSegment() throws IOException {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc")) {
+            log.append(prescription(1, day));
+            log.append(prescription(2, day));
+        }
+        Path active = directory.resolve("presc-000001.txt");
+        byte[] contents = Files.readAllBytes(active);
+        assertTrue(new String(contents, StandardCharsets.UTF_8).contains(RecordChecksum.LABEL),
+                "Segment records should carry checksum trailers");
+        // Flip a byte inside the last record, as a torn or damaged write would
+        contents[contents.length - 60] ^= 1;
+        Files.write(active, contents);
+
+        try (SegmentedLog log = SegmentedLog.open(directory, "presc")) {
+            assertEquals(1, log.segments().get(0).getRecords());
+            assertNull(log.findById(2), "The corrupt record should have been cut off");
+            assertEquals(1, log.findById(1).getPrescID());
+            log.append(prescription(3, day));
+            assertEquals(3, log.findById(3).getPrescID());
+        }
+        assertTrue(Files.exists(directory.resolve("presc-000001.txt.dropped")), "Dropped bytes should be kept");
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+// Maps repeated strings (optometrist names, addresses, remark types) to dense int codes and back,
+// so a value that occurs a million times is held or written once plus a 4-byte code per use.
+// Codes are assigned in insertion order starting at 0 and never change.
+//
+// Lookups of known values are lock-free; a new value is inserted under the dictionary's lock, so
+// concurrent writers of the same value always get the same code. An optional listener sees every
+// new entry, in code order and before its code is handed out, which is how BinaryPrescriptionStore
+// persists its dictionary file.
+public class StringDictionary {
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Consumer<String> listener;
+    private volatile String[] values = new String[16];
+    private int size; // guarded by this
+
+    public StringDictionary() {
+        this(value -> { });
+    }
+
+    public StringDictionary(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    // Builds a dictionary whose codes are the list positions, e.g. when loading a saved one
+    public static StringDictionary of(List<String> entries, Consumer<String> listener) {
+        StringDictionary dictionary = new StringDictionary(listener);
+        for (String entry : entries) {
+            dictionary.insert(entry, false);
+        }
+        return dictionary;
+    }
+
+    // The value's code, adding the value when it is new; null is not a value
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : insert(value, true);
+    }
+
+    private synchronized int insert(String value, boolean notify) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        // The listener runs first, so a failure to record the entry leaves no code behind
+        if (notify) {
+            listener.accept(value);
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+
+    // The value's code, or -1 when it is not in the dictionary
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        String[] current = values;
+        if (code >= 0 && code < current.length && current[code] != null) {
+            return current[code];
+        }
+        synchronized (this) {
+            if (code < 0 || code >= size) {
+                throw new IllegalArgumentException("Unknown dictionary code " + code + ".");
+            }
+            return values[code];
+        }
+    }
+
+    // The dictionary's own copy of an equal value, so equal strings held in memory share one instance
+    public String intern(String value) {
+        return value == null ? null : decode(encode(value));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Every value, in code order
+    public synchronized List<String> values() {
+        return List.of(Arrays.copyOf(values, size));
+    }
+}
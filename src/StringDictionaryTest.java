@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringDictionaryTest {
+
+    @Test
+    public void test1_Encode_AssignsCodesInInsertionOrder() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(0, dictionary.encode("doctor Raghav"));
+        assertEquals(1, dictionary.encode("doctor Mehta"));
+        assertEquals(0, dictionary.encode("doctor Raghav"));
+
+        assertEquals("doctor Mehta", dictionary.decode(1));
+        assertEquals(-1, dictionary.find("doctor Shah"));
+        assertEquals(2, dictionary.size());
+        assertThrows(IllegalArgumentException.class, () -> dictionary.decode(2));
+    }
+
+    @Test
+    public void test2_Encode_ConcurrentWritersGetTheSameCode() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<int[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    int[] codes = new int[1000];
+                    for (int i = 0; i < codes.length; i++) {
+                        codes[i] = dictionary.encode("value " + i);
+                    }
+                    return codes;
+                });
+            }
+            List<Future<int[]>> results = pool.invokeAll(tasks);
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1000, dictionary.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value " + i, dictionary.decode(dictionary.find("value " + i)));
+        }
+    }
+
+    @Test
+    public void test3_Of_ListenerSeesOnlyNewEntries() {
+        List<String> added = new ArrayList<>();
+        StringDictionary dictionary = StringDictionary.of(List.of("Bonn", "Pune"), added::add);
+
+        assertEquals(1, dictionary.encode("Pune"));
+        assertEquals(2, dictionary.encode("Oslo"));
+        dictionary.encode("Oslo");
+
+        assertEquals(List.of("Oslo"), added);
+        assertEquals(List.of("Bonn", "Pune", "Oslo"), dictionary.values());
+    }
+
+    @Test
+    public void test4_Encode_FailedListenerAssignsNoCode() {
+        StringDictionary dictionary = new StringDictionary(value -> {
+            throw new IllegalStateException("disk full");
+        });
+        assertThrows(IllegalStateException.class, () -> dictionary.encode("Bonn"));
+        assertEquals(-1, dictionary.find("Bonn"));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    public void test5_Intern_ReturnsSharedInstance() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = dictionary.intern(new String("doctor Raghav"));
+        assertSame(first, dictionary.intern(new String("doctor Raghav")));
+        assertNull(dictionary.intern(null));
+    }
+}